@@ -0,0 +1,69 @@
+package ru.corearchitect.coreeconomy.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.corearchitect.coreeconomy.manager.DataManager;
+import ru.corearchitect.coreeconomy.model.AccountSnapshot;
+import ru.corearchitect.coreeconomy.model.Money;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BalanceLookupBenchmark {
+
+    @Param({"1000000"})
+    public int accounts;
+
+    private BenchmarkPlugin plugin;
+    private DataManager dataManager;
+    private UUID hot;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        plugin = BenchmarkPlugin.start(BenchmarkData.prepare("accounts", accounts, 0), Collections.emptyMap());
+        dataManager = plugin.getDataManager();
+        hot = BenchmarkData.account(BenchmarkData.HOT_ACCOUNT);
+        dataManager.loadAccount(hot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plugin.stop();
+    }
+
+    @Benchmark
+    public Money getBalanceCached() {
+        return dataManager.getBalance(hot);
+    }
+
+    @Benchmark
+    public Money getBalanceFirstAccess() {
+        next = next + 1 < accounts ? next + 1 : 1;
+        return dataManager.getBalance(BenchmarkData.account(next));
+    }
+
+    @Benchmark
+    public AccountSnapshot getCachedAccount() {
+        return plugin.getEconomyManager().getCachedAccount(hot);
+    }
+}
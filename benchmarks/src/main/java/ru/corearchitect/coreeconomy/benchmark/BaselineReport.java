@@ -0,0 +1,176 @@
+package ru.corearchitect.coreeconomy.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+public final class BaselineReport {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java -cp benchmarks.jar ru.corearchitect.coreeconomy.benchmark.BaselineReport [options] <current.json> [baseline.json]",
+            "Prints a Markdown table of JMH results, compared with the baseline when it is given.",
+            "Options:",
+            "  --threshold <percent>     change that counts as a regression, 10 by default",
+            "  --fail-on-regression      exit with code 1 when any benchmark regressed");
+
+    private BaselineReport() {
+    }
+
+    public static void main(String[] args) {
+        double threshold = 10.0;
+        boolean failOnRegression = false;
+        List<Path> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threshold":
+                        if (i + 1 >= args.length) {
+                            throw new IllegalArgumentException("--threshold needs a value");
+                        }
+                        threshold = Double.parseDouble(args[++i]);
+                        break;
+                    case "--fail-on-regression":
+                        failOnRegression = true;
+                        break;
+                    case "--help":
+                    case "-h":
+                        System.out.println(USAGE);
+                        return;
+                    default:
+                        files.add(Paths.get(args[i]));
+                }
+            }
+            if (files.isEmpty() || files.size() > 2) {
+                throw new IllegalArgumentException("expected one or two result files");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        Map<String, Result> current;
+        Map<String, Result> baseline = new LinkedHashMap<>();
+        try {
+            current = read(files.get(0));
+            if (files.size() == 2 && Files.isRegularFile(files.get(1))) {
+                baseline = read(files.get(1));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to read benchmark results: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        int regressions = print(current, baseline, threshold);
+        if (failOnRegression && regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static int print(Map<String, Result> current, Map<String, Result> baseline, double threshold) {
+        StringBuilder out = new StringBuilder();
+        out.append("| Benchmark | Mode | Baseline | Current | Change |\n");
+        out.append("|---|---|---:|---:|---:|\n");
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            String change = "new";
+            if (before != null && before.score != 0) {
+                double percent = (now.score - before.score) / before.score * 100.0;
+                double worse = now.higherIsBetter() ? -percent : percent;
+                change = String.format(Locale.ROOT, "%+.1f%%", percent);
+                if (worse > threshold) {
+                    change += " **regression**";
+                    regressions++;
+                } else if (-worse > threshold) {
+                    change += " improvement";
+                }
+            }
+            out.append("| ").append(entry.getKey())
+                    .append(" | ").append(now.mode)
+                    .append(" | ").append(before != null ? before.format() : "-")
+                    .append(" | ").append(now.format())
+                    .append(" | ").append(change)
+                    .append(" |\n");
+        }
+        for (String missing : baseline.keySet()) {
+            if (!current.containsKey(missing)) {
+                out.append("| ").append(missing).append(" | ").append(baseline.get(missing).mode)
+                        .append(" | ").append(baseline.get(missing).format()).append(" | - | removed |\n");
+            }
+        }
+        out.append('\n').append(regressions == 0
+                ? "No regressions above " + threshold + "%."
+                : regressions + " benchmark(s) regressed by more than " + threshold + "%.").append('\n');
+        System.out.print(out);
+        return regressions;
+    }
+
+    private static Map<String, Result> read(Path file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonArray runs = JsonParser.parseReader(reader).getAsJsonArray();
+            for (JsonElement element : runs) {
+                JsonObject run = element.getAsJsonObject();
+                JsonObject metric = run.getAsJsonObject("primaryMetric");
+                String name = run.get("benchmark").getAsString();
+                name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+                if (run.has("params")) {
+                    Map<String, String> params = new TreeMap<>();
+                    run.getAsJsonObject("params").entrySet().forEach(param -> params.put(param.getKey(), param.getValue().getAsString()));
+                    name += " " + params;
+                }
+                results.put(name + " @" + run.get("threads").getAsInt(), new Result(
+                        run.get("mode").getAsString(),
+                        metric.get("score").getAsDouble(),
+                        metric.get("scoreError").isJsonPrimitive() && metric.get("scoreError").getAsJsonPrimitive().isNumber()
+                                ? metric.get("scoreError").getAsDouble() : Double.NaN,
+                        metric.get("scoreUnit").getAsString()));
+            }
+        }
+        return results;
+    }
+
+    private static final class Result {
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        Result(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        boolean higherIsBetter() {
+            return mode.equals("thrpt");
+        }
+
+        String format() {
+            String value = String.format(Locale.ROOT, "%.3f", score);
+            if (!Double.isNaN(error)) {
+                value += String.format(Locale.ROOT, " ± %.3f", error);
+            }
+            return value + " " + unit;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ru.corearchitect.coreeconomy.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public final class BenchmarkData {
+
+    public static final int HOT_ACCOUNT = 0;
+
+    private static final long UUID_PREFIX = 0x436f7265_45636f6eL;
+    private static final int BATCH_SIZE = 10_000;
+    private static final long SEED = 20240501L;
+    private static final String READY_FILE = ".ready";
+
+    private BenchmarkData() {
+    }
+
+    public static UUID account(int index) {
+        return new UUID(UUID_PREFIX, index);
+    }
+
+    public static String name(int index) {
+        return "bench_" + index;
+    }
+
+    public static File root() {
+        return new File(System.getProperty("coreeconomy.benchmark.data", "target/bench-data"));
+    }
+
+    public static File prepare(String name, int accounts, int transactions) throws IOException {
+        File folder = new File(root(), name + "-" + accounts + "-" + transactions);
+        File ready = new File(folder, READY_FILE);
+        String fingerprint = accounts + "/" + transactions;
+        if (ready.isFile() && fingerprint.equals(Files.readString(ready.toPath(), StandardCharsets.UTF_8))) {
+            return folder;
+        }
+
+        delete(folder.toPath());
+        BenchmarkPlugin.start(folder, Collections.emptyMap()).stop();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + new File(folder, "database.db").getAbsolutePath())) {
+            connection.setAutoCommit(false);
+            insertAccounts(connection, accounts);
+            insertTransactions(connection, accounts, transactions);
+            connection.commit();
+            try (Statement statement = connection.createStatement()) {
+                connection.setAutoCommit(true);
+                statement.execute("ANALYZE;");
+            }
+        } catch (SQLException e) {
+            throw new IOException("Could not seed " + folder, e);
+        }
+        Files.writeString(ready.toPath(), fingerprint, StandardCharsets.UTF_8);
+        return folder;
+    }
+
+    private static void insertAccounts(Connection connection, int accounts) throws SQLException {
+        SplittableRandom random = new SplittableRandom(SEED);
+        try (PreparedStatement players = connection.prepareStatement("INSERT INTO players(uuid, balance, is_frozen, scoreboard_enabled) VALUES(?,?,0,0);");
+             PreparedStatement names = connection.prepareStatement("INSERT INTO player_names(uuid, name, name_lower, last_seen) VALUES(?,?,?,?);")) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < accounts; i++) {
+                String uuid = account(i).toString();
+                players.setString(1, uuid);
+                players.setLong(2, random.nextLong(1_000_000_00L));
+                players.addBatch();
+                names.setString(1, uuid);
+                names.setString(2, name(i));
+                names.setString(3, name(i));
+                names.setLong(4, now);
+                names.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    players.executeBatch();
+                    names.executeBatch();
+                }
+            }
+            players.executeBatch();
+            names.executeBatch();
+        }
+    }
+
+    private static void insertTransactions(Connection connection, int accounts, int transactions) throws SQLException {
+        if (transactions == 0) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        int[] counts = new int[accounts];
+        long start = System.currentTimeMillis() - transactions * 1000L;
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO transactions(timestamp, initiator_name, target_name, transaction_type, amount, commission, initiator_uuid, target_uuid) VALUES(?,?,?,?,?,?,?,?);")) {
+            for (int i = 0; i < transactions; i++) {
+                int from = random.nextInt(10) == 0 ? HOT_ACCOUNT : random.nextInt(accounts);
+                int to = random.nextInt(accounts);
+                if (to == from) {
+                    to = (to + 1) % accounts;
+                }
+                long amount = 1 + random.nextLong(100_000_00L);
+                insert.setTimestamp(1, new Timestamp(start + i * 1000L));
+                insert.setString(2, name(from));
+                insert.setString(3, name(to));
+                insert.setString(4, "PAY");
+                insert.setString(5, BigDecimal.valueOf(amount, 2).toPlainString());
+                insert.setString(6, BigDecimal.valueOf(amount / 20, 2).toPlainString());
+                insert.setString(7, account(from).toString());
+                insert.setString(8, account(to).toString());
+                insert.addBatch();
+                counts[from]++;
+                counts[to]++;
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO player_history_counts(uuid, tx_count) VALUES(?,?);")) {
+            for (int i = 0; i < accounts; i++) {
+                if (counts[i] == 0) {
+                    continue;
+                }
+                insert.setString(1, account(i).toString());
+                insert.setInt(2, counts[i]);
+                insert.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    public static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.corearchitect.coreeconomy.benchmark;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+public final class BenchmarkPlugin extends CoreEconomy {
+
+    private BenchmarkPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder) {
+        super(loader, description, dataFolder, new File(dataFolder, "CoreEconomy.jar"));
+    }
+
+    public static BenchmarkPlugin start(File dataFolder, Map<String, Object> overrides) throws IOException {
+        JavaPluginLoader loader = new JavaPluginLoader(StubServer.install());
+        PluginDescriptionFile description = new PluginDescriptionFile("CoreEconomy", "benchmark", CoreEconomy.class.getName());
+        if (!dataFolder.isDirectory() && !dataFolder.mkdirs()) {
+            throw new IOException("Could not create " + dataFolder);
+        }
+
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("data-storage.type", "SQLITE");
+        config.set("backups.enabled", false);
+        config.set("backups.incremental.enabled", false);
+        overrides.forEach(config::set);
+        config.save(new File(dataFolder, "config.yml"));
+
+        BenchmarkPlugin plugin = new BenchmarkPlugin(loader, description, dataFolder);
+        plugin.createServices();
+        plugin.getScoreboardManager().start();
+        return plugin;
+    }
+
+    public void stop() {
+        onDisable();
+    }
+}
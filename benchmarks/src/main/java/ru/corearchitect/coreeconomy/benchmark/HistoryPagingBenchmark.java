@@ -0,0 +1,85 @@
+package ru.corearchitect.coreeconomy.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.corearchitect.coreeconomy.manager.DataManager;
+import ru.corearchitect.coreeconomy.model.TransactionRecord;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryPagingBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final int PAGE_SIZE = 10;
+
+    @Param({"1000000", "2000000"})
+    public int rows;
+
+    @Param({"1000"})
+    public int page;
+
+    private BenchmarkPlugin plugin;
+    private DataManager dataManager;
+    private UUID hot;
+    private long deepCursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        plugin = BenchmarkPlugin.start(BenchmarkData.prepare("history", ACCOUNTS, rows), Map.of("history.entries-per-page", PAGE_SIZE));
+        dataManager = plugin.getDataManager();
+        hot = BenchmarkData.account(BenchmarkData.HOT_ACCOUNT);
+        deepCursor = Long.MAX_VALUE;
+        for (int i = 1; i < page; i++) {
+            List<TransactionRecord> previous = dataManager.getPlayerHistory(hot, deepCursor, true).join();
+            deepCursor = previous.get(previous.size() - 1).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plugin.stop();
+    }
+
+    @Benchmark
+    public List<TransactionRecord> firstPage() {
+        return dataManager.getPlayerHistory(hot, Long.MAX_VALUE, true).join();
+    }
+
+    @Benchmark
+    public List<TransactionRecord> deepPageByCursor() {
+        return dataManager.getPlayerHistory(hot, deepCursor, true).join();
+    }
+
+    @Benchmark
+    public List<TransactionRecord> firstPageRandomPlayer() {
+        UUID player = BenchmarkData.account(1 + ThreadLocalRandom.current().nextInt(ACCOUNTS - 1));
+        return dataManager.getPlayerHistory(player, Long.MAX_VALUE, true).join();
+    }
+
+    @Benchmark
+    public int countHistory() {
+        return dataManager.countPlayerHistory(hot).join();
+    }
+}
@@ -0,0 +1,87 @@
+package ru.corearchitect.coreeconomy.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.corearchitect.coreeconomy.manager.DataManager;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.util.BalanceRankIndex;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LeaderboardBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int accounts;
+
+    private BenchmarkPlugin plugin;
+    private DataManager dataManager;
+    private Map<UUID, Money> balances;
+    private BalanceRankIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        plugin = BenchmarkPlugin.start(BenchmarkData.prepare("accounts", accounts, 0), Collections.emptyMap());
+        dataManager = plugin.getDataManager();
+        balances = dataManager.getAllBalances();
+        index = buildIndex(balances);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plugin.stop();
+    }
+
+    @Benchmark
+    public BalanceRankIndex rebuildFromStorage() {
+        return buildIndex(dataManager.getAllBalances());
+    }
+
+    @Benchmark
+    public BalanceRankIndex rebuildFromMemory() {
+        return buildIndex(balances);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<BalanceRankIndex.Entry> top() {
+        return index.top(plugin.getConfigManager().getLeaderboardSize());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int updateAndRank() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        UUID uuid = BenchmarkData.account(random.nextInt(accounts));
+        index.update(uuid, random.nextLong(1_000_000_00L));
+        return index.rankOf(uuid);
+    }
+
+    private static BalanceRankIndex buildIndex(Map<UUID, Money> balances) {
+        BalanceRankIndex index = new BalanceRankIndex();
+        balances.forEach((uuid, balance) -> index.putIfAbsent(uuid, balance.getMinorUnits()));
+        return index;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.corearchitect.coreeconomy.benchmark;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.util.LineTemplate;
+import ru.corearchitect.coreeconomy.util.NumberFormatter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScoreboardRenderBenchmark {
+
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.legacySection();
+
+    private BenchmarkPlugin plugin;
+    private List<LineTemplate> templates;
+    private String symbol;
+    private Money balance;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        plugin = BenchmarkPlugin.start(BenchmarkData.prepare("render", 1, 0), Collections.emptyMap());
+        List<String> lines = plugin.getConfigManager().getScoreboardLines();
+        templates = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            templates.add(LineTemplate.compile(line));
+        }
+        symbol = plugin.getConfigManager().getCurrencySymbol();
+        balance = Money.ofMinor(123_456_789_01L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plugin.stop();
+    }
+
+    @Benchmark
+    public String formatBalance() {
+        return NumberFormatter.format(Money.ofMinor(ThreadLocalRandom.current().nextLong(1_000_000_000_00L)));
+    }
+
+    @Benchmark
+    public void renderLines(Blackhole blackhole) {
+        String[] values = {"bench_player", NumberFormatter.format(balance), symbol};
+        for (LineTemplate template : templates) {
+            blackhole.consume(template.render(values));
+        }
+    }
+
+    @Benchmark
+    public void renderBalanceLines(Blackhole blackhole) {
+        String[] values = {"bench_player", NumberFormatter.format(balance), symbol};
+        for (LineTemplate template : templates) {
+            if (template.usesBalance()) {
+                Component component = SERIALIZER.deserialize(template.render(values));
+                blackhole.consume(component);
+            }
+        }
+    }
+}
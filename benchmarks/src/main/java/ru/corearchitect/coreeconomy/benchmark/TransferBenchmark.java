@@ -0,0 +1,84 @@
+package ru.corearchitect.coreeconomy.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.corearchitect.coreeconomy.manager.EconomyManager;
+import ru.corearchitect.coreeconomy.model.TransactionResult;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"10000"})
+    public int accounts;
+
+    private BenchmarkPlugin plugin;
+    private EconomyManager economy;
+    private UUID[] uuids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        plugin = BenchmarkPlugin.start(BenchmarkData.prepare("transfer", accounts, 0), Map.of("commission.percentage", 0.0));
+        economy = plugin.getEconomyManager();
+        uuids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            uuids[i] = BenchmarkData.account(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        plugin.stop();
+    }
+
+    @Benchmark
+    public TransactionResult transfer() {
+        return transferRandomPair();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public TransactionResult transferConcurrent() {
+        return transferRandomPair();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public TransactionResult transferContended() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(4);
+        return economy.transfer(uuids[from], uuids[(from + 1 + random.nextInt(3)) % 4], AMOUNT).join();
+    }
+
+    private TransactionResult transferRandomPair() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accounts);
+        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        return economy.transfer(uuids[from], uuids[to], AMOUNT).join();
+    }
+}
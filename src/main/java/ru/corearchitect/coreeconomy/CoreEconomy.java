@@ -1,7 +1,9 @@
 package ru.corearchitect.coreeconomy;
 
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import org.bukkit.scheduler.BukkitTask;
 import ru.corearchitect.coreeconomy.api.EconomyAPI;
 import ru.corearchitect.coreeconomy.command.EconomyAdminCommand;
@@ -9,12 +11,18 @@ import ru.corearchitect.coreeconomy.command.PlayerEconomyCommand;
 import ru.corearchitect.coreeconomy.listener.PlayerConnectionListener;
 import ru.corearchitect.coreeconomy.manager.*;
 
+import java.io.File;
 import java.util.Objects;
 
-public final class CoreEconomy extends JavaPlugin {
+public class CoreEconomy extends JavaPlugin {
 
     private static CoreEconomy instance;
+    private MetricsManager metricsManager;
+    private SlowOperationTracer slowOperationTracer;
+    private TransactionEventDispatcher transactionEventDispatcher;
+    private EconomyExecutor economyExecutor;
     private DataManager dataManager;
+    private NameCache nameCache;
     private EconomyManager economyManager;
     private ConfigManager configManager;
     private ScoreboardManager scoreboardManager;
@@ -23,48 +31,79 @@ public final class CoreEconomy extends JavaPlugin {
     private BackupManager backupManager;
     private BukkitTask autosaveTask;
 
+    public CoreEconomy() {
+        super();
+    }
+
+    protected CoreEconomy(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
+
     @Override
     public void onEnable() {
         instance = this;
 
-        this.configManager = new ConfigManager(this);
-        this.dataManager = new DataManager(this);
-        this.economyManager = new EconomyManager(this);
-        this.scoreboardManager = new ScoreboardManager(this);
-        this.transactionLogger = new TransactionLogger(this);
-        this.leaderboardManager = new LeaderboardManager(this);
-        this.backupManager = new BackupManager(this);
-
+        createServices();
         registerAPI();
         registerCommands();
         registerListeners();
 
-        this.scoreboardManager.startUpdateTask();
+        this.scoreboardManager.start();
         this.leaderboardManager.startUpdateTask();
         this.backupManager.start();
+        this.dataManager.getAggregates().start();
+        this.metricsManager.start();
+        this.slowOperationTracer.start();
         startAutosaveTask();
     }
 
+    protected void createServices() {
+        this.configManager = new ConfigManager(this);
+        this.metricsManager = new MetricsManager(this);
+        this.slowOperationTracer = new SlowOperationTracer(this);
+        this.economyExecutor = new EconomyExecutor(this);
+        this.dataManager = new DataManager(this);
+        this.nameCache = new NameCache(this);
+        this.transactionEventDispatcher = new TransactionEventDispatcher(this);
+        this.economyManager = new EconomyManager(this);
+        this.scoreboardManager = new ScoreboardManager(this);
+        this.transactionLogger = new TransactionLogger(this);
+        this.leaderboardManager = new LeaderboardManager(this);
+        this.backupManager = new BackupManager(this);
+    }
+
     @Override
     public void onDisable() {
         if (this.scoreboardManager != null) {
-            this.scoreboardManager.cancelUpdateTask();
+            this.scoreboardManager.stop();
         }
         if (this.leaderboardManager != null) {
             this.leaderboardManager.cancelUpdateTask();
         }
-        if (this.backupManager != null) {
-            this.backupManager.stop();
-        }
         if (this.autosaveTask != null) {
             this.autosaveTask.cancel();
         }
+        if (this.economyExecutor != null) {
+            this.economyExecutor.shutdown();
+        }
+        if (this.transactionEventDispatcher != null) {
+            this.transactionEventDispatcher.stop();
+        }
+        if (this.backupManager != null) {
+            this.backupManager.stop();
+        }
         if (this.dataManager != null) {
             this.dataManager.shutdown();
         }
         if (this.transactionLogger != null) {
             this.transactionLogger.close();
         }
+        if (this.slowOperationTracer != null) {
+            this.slowOperationTracer.stop();
+        }
+        if (this.metricsManager != null) {
+            this.metricsManager.stop();
+        }
     }
 
     private void registerAPI() {
@@ -87,21 +126,51 @@ public final class CoreEconomy extends JavaPlugin {
     }
 
     private void startAutosaveTask() {
-        if (!configManager.getStorageType().equalsIgnoreCase("YAML")) {
-            return;
+        long interval;
+        if (configManager.getStorageType().equalsIgnoreCase("SQLITE")) {
+            interval = Math.max(1, configManager.getSQLiteFlushIntervalSeconds()) * 20L;
+        } else {
+            interval = configManager.getAutosaveInterval() * 20L * 60L;
         }
-        long interval = configManager.getAutosaveInterval() * 20L * 60L;
-        this.autosaveTask = getServer().getScheduler().runTaskTimerAsynchronously(this, this.dataManager::saveAllData, interval, interval);
+        MetricsManager.Timer timer = metricsManager.timer(MetricsManager.Family.TASK, "autosave");
+        this.autosaveTask = getServer().getScheduler().runTaskTimerAsynchronously(this, () -> timer.time(this.dataManager::saveAllData), interval, interval);
+    }
+
+    public void restartAutosaveTask() {
+        if (this.autosaveTask != null) {
+            this.autosaveTask.cancel();
+        }
+        startAutosaveTask();
     }
 
     public static CoreEconomy getInstance() {
         return instance;
     }
 
+    public EconomyExecutor getEconomyExecutor() {
+        return economyExecutor;
+    }
+
+    public MetricsManager getMetricsManager() {
+        return metricsManager;
+    }
+
+    public SlowOperationTracer getSlowOperationTracer() {
+        return slowOperationTracer;
+    }
+
+    public TransactionEventDispatcher getTransactionEventDispatcher() {
+        return transactionEventDispatcher;
+    }
+
     public DataManager getDataManager() {
         return dataManager;
     }
 
+    public NameCache getNameCache() {
+        return nameCache;
+    }
+
     public EconomyManager getEconomyManager() {
         return economyManager;
     }
@@ -110,6 +179,10 @@ public final class CoreEconomy extends JavaPlugin {
         return configManager;
     }
 
+    public BackupManager getBackupManager() {
+        return backupManager;
+    }
+
     public ScoreboardManager getScoreboardManager() {
         return scoreboardManager;
     }
@@ -1,7 +1,12 @@
 package ru.corearchitect.coreeconomy.api;
 
+import ru.corearchitect.coreeconomy.model.AccountSnapshot;
+import ru.corearchitect.coreeconomy.model.BatchResult;
 import ru.corearchitect.coreeconomy.model.TransactionResult;
+import ru.corearchitect.coreeconomy.model.Transfer;
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
@@ -12,10 +17,14 @@ public interface EconomyAPI {
     CompletableFuture<Boolean> deposit(UUID playerUUID, BigDecimal amount);
     CompletableFuture<Void> setBalance(UUID playerUUID, BigDecimal amount);
     CompletableFuture<Boolean> isFrozen(UUID playerUUID);
+    AccountSnapshot getCachedAccount(UUID playerUUID);
     CompletableFuture<Void> setFrozen(UUID playerUUID, boolean frozen);
     String getCurrencySymbol();
     CompletableFuture<BigDecimal> getTotalServerBalance();
     CompletableFuture<BigDecimal> getTotalCommission();
     String format(BigDecimal amount);
     CompletableFuture<TransactionResult> transfer(UUID from, UUID to, BigDecimal amount);
+    CompletableFuture<BatchResult<UUID>> depositAll(Map<UUID, BigDecimal> amounts);
+    CompletableFuture<BatchResult<UUID>> withdrawAll(Map<UUID, BigDecimal> amounts);
+    CompletableFuture<List<TransactionResult>> transferMany(List<Transfer> transfers);
 }
\ No newline at end of file
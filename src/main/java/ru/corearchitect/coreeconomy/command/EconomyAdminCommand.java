@@ -13,26 +13,42 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 import org.bukkit.util.StringUtil;
 import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.manager.BackupManager;
 import ru.corearchitect.coreeconomy.manager.ConfigManager;
 import ru.corearchitect.coreeconomy.manager.DataManager;
 import ru.corearchitect.coreeconomy.manager.EconomyManager;
+import ru.corearchitect.coreeconomy.manager.MetricsManager;
+import ru.corearchitect.coreeconomy.manager.NameCache;
+import ru.corearchitect.coreeconomy.manager.ServerAggregates;
+import ru.corearchitect.coreeconomy.manager.StorageMigrator;
 import ru.corearchitect.coreeconomy.manager.TransactionLogger;
+import ru.corearchitect.coreeconomy.model.LogRecord;
+import ru.corearchitect.coreeconomy.model.Money;
 import ru.corearchitect.coreeconomy.model.PendingAdminCommand;
 import ru.corearchitect.coreeconomy.model.TransactionRecord;
 import ru.corearchitect.coreeconomy.model.TransactionType;
+import ru.corearchitect.coreeconomy.util.LatencyHistogram;
 import ru.corearchitect.coreeconomy.util.NumberFormatter;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
 
+    private static final List<String> STORAGE_TYPES = Arrays.asList("SQLITE", "YAML", "MAPPED");
+
     private final CoreEconomy plugin;
     private final EconomyManager economyManager;
     private final ConfigManager configManager;
     private final DataManager dataManager;
+    private final NameCache nameCache;
     private final TransactionLogger logger;
     private final Map<UUID, PendingAdminCommand> pendingCommands = new ConcurrentHashMap<>();
     private final DateTimeFormatter historyDateFormatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
@@ -42,6 +58,7 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
         this.economyManager = plugin.getEconomyManager();
         this.configManager = plugin.getConfigManager();
         this.dataManager = plugin.getDataManager();
+        this.nameCache = plugin.getNameCache();
         this.logger = plugin.getTransactionLogger();
     }
 
@@ -72,6 +89,15 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
             case "history":
                 handleHistory(sender, args);
                 return true;
+            case "migrate":
+                handleMigrate(sender, args);
+                return true;
+            case "restore":
+                handleRestore(sender, args);
+                return true;
+            case "stats":
+                handleStats(sender, args);
+                return true;
         }
 
         if (args.length < 2) {
@@ -79,7 +105,11 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
+        OfflinePlayer target = nameCache.findPlayer(args[1]);
+        if (target == null) {
+            sender.sendMessage(configManager.getPrefixedMessage("player-does-not-exist"));
+            return true;
+        }
 
         economyManager.hasAccount(target.getUniqueId()).thenAccept(hasAccount -> {
             if (!hasAccount && !target.isOnline()) {
@@ -119,21 +149,36 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
             return;
         }
 
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
         int page = 1;
+        long cursorId = 0;
+        boolean older = true;
 
-        if (args.length > 2) {
-            try {
-                page = Integer.parseInt(args[2]);
-                if (page < 1) page = 1;
-            } catch (NumberFormatException e) {
-                sender.sendMessage(configManager.getPrefixedMessage("invalid-amount"));
-                return;
+        try {
+            if (args.length > 4) {
+                page = Math.max(1, Integer.parseInt(args[2]));
+                older = !args[3].equalsIgnoreCase("after");
+                cursorId = Long.parseLong(args[4]);
             }
+        } catch (NumberFormatException e) {
+            sender.sendMessage(configManager.getPrefixedMessage("invalid-amount"));
+            return;
         }
 
         final int finalPage = page;
-        dataManager.countPlayerHistory(target.getUniqueId()).thenAccept(totalEntries -> {
+        final long finalCursorId = cursorId;
+        final boolean finalOlder = older;
+        nameCache.lookupUuid(args[1]).thenAccept(targetUuid -> {
+            if (targetUuid == null) {
+                sender.sendMessage(configManager.getPrefixedMessage("player-does-not-exist"));
+                return;
+            }
+            String targetName = nameCache.getName(targetUuid);
+            showHistory(sender, targetUuid, targetName != null ? targetName : args[1], finalPage, finalCursorId, finalOlder);
+        });
+    }
+
+    private void showHistory(CommandSender sender, UUID targetUuid, String targetName, int finalPage, long finalCursorId, boolean finalOlder) {
+        dataManager.countPlayerHistory(targetUuid).thenAccept(totalEntries -> {
             if (totalEntries == 0) {
                 sender.sendMessage(configManager.getPrefixedMessage("history.no-entries"));
                 return;
@@ -147,30 +192,40 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
                 return;
             }
 
-            dataManager.getPlayerHistory(target.getUniqueId(), finalPage).thenAccept(history -> {
+            CompletableFuture<List<TransactionRecord>> historyFuture =
+                    dataManager.getPlayerHistory(targetUuid, finalCursorId > 0 ? finalCursorId : Long.MAX_VALUE, finalOlder);
+
+            historyFuture.thenAccept(history -> {
+                if (history.isEmpty()) {
+                    sender.sendMessage(configManager.getPrefixedMessage("history.no-entries"));
+                    return;
+                }
+
                 sender.sendMessage(configManager.getMessage("history.header")
-                        .replace("{player}", target.getName())
+                        .replace("{player}", targetName)
                         .replace("{page}", String.valueOf(finalPage))
                         .replace("{max_pages}", String.valueOf(maxPages)));
 
                 for (TransactionRecord record : history) {
-                    String formattedLine = formatHistoryLine(record, target.getUniqueId());
+                    String formattedLine = formatHistoryLine(record, targetUuid);
                     sender.sendMessage(Component.text(formattedLine));
                 }
 
-                sender.sendMessage(createPaginationComponent(target.getName(), finalPage, maxPages));
+                long newestId = history.get(0).getId();
+                long oldestId = history.get(history.size() - 1).getId();
+                sender.sendMessage(createPaginationComponent(targetName, finalPage, maxPages, newestId, oldestId));
             });
         });
     }
 
-    private TextComponent createPaginationComponent(String targetName, int currentPage, int maxPages) {
+    private TextComponent createPaginationComponent(String targetName, int currentPage, int maxPages, long newestId, long oldestId) {
         TextComponent.Builder builder = Component.text();
         builder.append(Component.text(configManager.getMessage("history.footer")));
         builder.append(Component.newline());
 
         if (currentPage > 1) {
             builder.append(Component.text(configManager.getMessage("history.pagination.previous"))
-                    .clickEvent(ClickEvent.runCommand("/eduadmin history " + targetName + " " + (currentPage - 1)))
+                    .clickEvent(ClickEvent.runCommand("/eduadmin history " + targetName + " " + (currentPage - 1) + " after " + newestId))
                     .hoverEvent(HoverEvent.showText(Component.text("Перейти на страницу " + (currentPage - 1)))));
         } else {
             builder.append(Component.text(configManager.getMessage("history.pagination.no-previous")));
@@ -180,7 +235,7 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
 
         if (currentPage < maxPages) {
             builder.append(Component.text(configManager.getMessage("history.pagination.next"))
-                    .clickEvent(ClickEvent.runCommand("/eduadmin history " + targetName + " " + (currentPage + 1)))
+                    .clickEvent(ClickEvent.runCommand("/eduadmin history " + targetName + " " + (currentPage + 1) + " before " + oldestId))
                     .hoverEvent(HoverEvent.showText(Component.text("Перейти на страницу " + (currentPage + 1)))));
         } else {
             builder.append(Component.text(configManager.getMessage("history.pagination.no-next")));
@@ -198,31 +253,31 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
         String formatted;
         switch (record.getTransactionType()) {
             case PAY:
-                boolean isSender = record.getInitiatorName().equals(Bukkit.getOfflinePlayer(viewerUuid).getName());
+                boolean isSender = viewerUuid.equals(record.getInitiatorUuid());
                 if (isSender) {
                     formatted = configManager.getMessage("history.entry-pay-sent")
-                            .replace("{recipient}", record.getTargetName())
+                            .replace("{recipient}", displayName(record.getTargetUuid(), record.getTargetName()))
                             .replace("{amount}", amount)
                             .replace("{commission}", commission);
                 } else {
                     formatted = configManager.getMessage("history.entry-pay-received")
-                            .replace("{sender}", record.getInitiatorName())
+                            .replace("{sender}", displayName(record.getInitiatorUuid(), record.getInitiatorName()))
                             .replace("{amount}", amount);
                 }
                 break;
             case ADMIN_ADD:
                 formatted = configManager.getMessage("history.entry-admin-add")
-                        .replace("{admin}", record.getInitiatorName())
+                        .replace("{admin}", displayName(record.getInitiatorUuid(), record.getInitiatorName()))
                         .replace("{amount}", amount);
                 break;
             case ADMIN_REMOVE:
                 formatted = configManager.getMessage("history.entry-admin-remove")
-                        .replace("{admin}", record.getInitiatorName())
+                        .replace("{admin}", displayName(record.getInitiatorUuid(), record.getInitiatorName()))
                         .replace("{amount}", amount);
                 break;
             case ADMIN_SET:
                 formatted = configManager.getMessage("history.entry-admin-set")
-                        .replace("{admin}", record.getInitiatorName())
+                        .replace("{admin}", displayName(record.getInitiatorUuid(), record.getInitiatorName()))
                         .replace("{amount}", amount);
                 break;
             default:
@@ -235,6 +290,11 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
                 .replace("{symbol}", symbol);
     }
 
+    private String displayName(UUID uuid, String storedName) {
+        String currentName = uuid != null ? nameCache.getName(uuid) : null;
+        return currentName != null ? currentName : storedName;
+    }
+
     private void handleDangerousBalanceModification(CommandSender sender, String type, OfflinePlayer target, String[] args, String commandLabel) {
         if (args.length != 3) {
             sender.sendMessage(configManager.getPrefixedMessage("command.admin-usage").replace("{command}", commandLabel));
@@ -270,9 +330,9 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
 
         BigDecimal amount;
         try {
-            amount = new BigDecimal(args[2].replace(',', '.'));
+            amount = Money.of(new BigDecimal(args[2].replace(',', '.'))).toBigDecimal();
             if (amount.compareTo(BigDecimal.ZERO) < 0) throw new NumberFormatException();
-        } catch (NumberFormatException e) {
+        } catch (NumberFormatException | ArithmeticException e) {
             sender.sendMessage(configManager.getPrefixedMessage("invalid-amount"));
             return;
         }
@@ -306,9 +366,9 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
 
         BigDecimal amount;
         try {
-            amount = new BigDecimal(args[2].replace(',', '.'));
+            amount = Money.of(new BigDecimal(args[2].replace(',', '.'))).toBigDecimal();
             if (amount.compareTo(BigDecimal.ZERO) < 0) throw new NumberFormatException();
-        } catch (NumberFormatException e) {
+        } catch (NumberFormatException | ArithmeticException e) {
             sender.sendMessage(configManager.getPrefixedMessage("invalid-amount"));
             return;
         }
@@ -321,12 +381,13 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
         String formattedAmount = NumberFormatter.format(amount);
         String logType = transactionType.name();
 
-        logger.log(String.format("[%s] Admin: %s | Target: %s (%s) | Amount: %s",
-                logType, sender.getName(), target.getName(), target.getUniqueId(), formattedAmount));
+        logger.log(LogRecord.admin(logType, senderUuid(sender), sender.getName(), target.getUniqueId(), target.getName(), Money.of(amount)));
 
         dataManager.logTransaction(
                 new TransactionRecord(
+                        senderUuid(sender),
                         sender.getName(),
+                        target.getUniqueId(),
                         target.getName(),
                         transactionType,
                         amount,
@@ -343,11 +404,149 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
 
     private void handleReload(CommandSender sender) {
         configManager.reload();
-        plugin.getLeaderboardManager().updateLeaderboard();
+        plugin.getScoreboardManager().reloadTemplates();
+        plugin.getSlowOperationTracer().reload();
+        plugin.getTransactionEventDispatcher().reload();
         sender.sendMessage(configManager.getPrefixedMessage("admin.reload-success"));
     }
 
+    private void handleMigrate(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage(configManager.getPrefixedMessage("command.migrate-usage"));
+            return;
+        }
+
+        if (args[1].equalsIgnoreCase("status")) {
+            StorageMigrator migrator = dataManager.getMigrator();
+            if (migrator == null) {
+                sender.sendMessage(configManager.getPrefixedMessage("admin.migration-not-running")
+                        .replace("{type}", dataManager.getStorageType()));
+                return;
+            }
+            sender.sendMessage(migrator.format("admin.migration-status"));
+            return;
+        }
+
+        String targetType = args[1].toUpperCase(Locale.ROOT);
+        if (!STORAGE_TYPES.contains(targetType)) {
+            sender.sendMessage(configManager.getPrefixedMessage("command.migrate-usage"));
+            return;
+        }
+        if (targetType.equals(dataManager.getStorageType())) {
+            sender.sendMessage(configManager.getPrefixedMessage("admin.migration-same-type").replace("{to}", targetType));
+            return;
+        }
+
+        if (dataManager.getAggregates().isRecounting()) {
+            sender.sendMessage(configManager.getPrefixedMessage("admin.migration-recount-running"));
+            return;
+        }
+
+        StorageMigrator migrator = dataManager.startMigration(targetType, sender);
+        if (migrator == null) {
+            sender.sendMessage(configManager.getPrefixedMessage("admin.migration-already-running"));
+            return;
+        }
+        logger.log(LogRecord.note("MIGRATE", sender.getName(), "From: " + migrator.getSourceType() + " | To: " + targetType));
+        sender.sendMessage(migrator.format("admin.migration-started"));
+    }
+
+    private void handleRestore(CommandSender sender, String[] args) {
+        if (args.length < 3) {
+            sender.sendMessage(configManager.getPrefixedMessage("command.restore-usage"));
+            return;
+        }
+
+        LocalDateTime pointInTime;
+        try {
+            String time = args[2].length() == 5 ? args[2] + ":00" : args[2];
+            pointInTime = LocalDateTime.of(LocalDate.parse(args[1]), LocalTime.parse(time));
+        } catch (DateTimeParseException e) {
+            sender.sendMessage(configManager.getPrefixedMessage("command.restore-usage"));
+            return;
+        }
+
+        BackupManager backupManager = plugin.getBackupManager();
+        if (!backupManager.isAvailable()) {
+            sender.sendMessage(configManager.getPrefixedMessage("admin.restore-unavailable"));
+            return;
+        }
+        if (!backupManager.startRestore(pointInTime, sender)) {
+            sender.sendMessage(configManager.getPrefixedMessage("admin.restore-already-running"));
+            return;
+        }
+        logger.log(LogRecord.note("RESTORE", sender.getName(), "Point in time: " + pointInTime));
+    }
+
+    private void handleStats(CommandSender sender, String[] args) {
+        MetricsManager metrics = plugin.getMetricsManager();
+        String section = args.length > 1 ? args[1].toLowerCase(Locale.ROOT) : null;
+        boolean found = false;
+        for (MetricsManager.Family family : MetricsManager.Family.values()) {
+            if (section == null || section.equals(family.getKey())) {
+                found = true;
+                sendTimers(sender, family.getKey(), metrics.getTimers(family));
+            }
+        }
+        if (section == null || section.equals("counters")) {
+            found = true;
+            sender.sendMessage(configManager.getMessage("admin.stats-header")
+                    .replace("{section}", configManager.getMessage("admin.stats-sections.counters")));
+            for (MetricsManager.Counter counter : metrics.getCounters()) {
+                if (counter.getCount() > 0) {
+                    sendStatsValue(sender, counter.getMetric() + "[" + counter.getValue() + "]", counter.getCount());
+                }
+            }
+            for (MetricsManager.Gauge gauge : metrics.getGauges()) {
+                sendStatsValue(sender, gauge.getName(), gauge.read());
+            }
+        }
+        if (!found) {
+            sender.sendMessage(configManager.getPrefixedMessage("command.stats-usage"));
+        }
+    }
+
+    private void sendTimers(CommandSender sender, String section, Collection<MetricsManager.Timer> timers) {
+        sender.sendMessage(configManager.getMessage("admin.stats-header")
+                .replace("{section}", configManager.getMessage("admin.stats-sections." + section)));
+        boolean empty = true;
+        for (MetricsManager.Timer timer : timers) {
+            LatencyHistogram.Snapshot snapshot = timer.snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            empty = false;
+            sender.sendMessage(configManager.getMessage("admin.stats-timer")
+                    .replace("{name}", timer.getName())
+                    .replace("{count}", String.valueOf(snapshot.getCount()))
+                    .replace("{p50}", MetricsManager.formatDuration(snapshot.getValueAtPercentile(50)))
+                    .replace("{p99}", MetricsManager.formatDuration(snapshot.getValueAtPercentile(99)))
+                    .replace("{max}", MetricsManager.formatDuration(snapshot.getMax())));
+        }
+        if (empty) {
+            sender.sendMessage(configManager.getMessage("admin.stats-empty"));
+        }
+    }
+
+    private void sendStatsValue(CommandSender sender, String name, long value) {
+        sender.sendMessage(configManager.getMessage("admin.stats-value")
+                .replace("{name}", name)
+                .replace("{value}", String.valueOf(value)));
+    }
+
     private void handleTotal(CommandSender sender) {
+        ServerAggregates aggregates = dataManager.getAggregates();
+        if (aggregates.isReady()) {
+            sender.sendMessage(configManager.getPrefixedMessage("admin.total-balance")
+                    .replace("{total}", NumberFormatter.format(aggregates.getMoneySupply()))
+                    .replace("{symbol}", configManager.getCurrencySymbol()));
+            sender.sendMessage(configManager.getPrefixedMessage("admin.total-details")
+                    .replace("{commission}", NumberFormatter.format(aggregates.getTotalCommission()))
+                    .replace("{symbol}", configManager.getCurrencySymbol())
+                    .replace("{accounts}", String.valueOf(aggregates.getAccountCount()))
+                    .replace("{frozen}", String.valueOf(aggregates.getFrozenAccountCount())));
+            return;
+        }
         economyManager.getTotalServerBalance().thenAccept(totalBalance -> {
             String formattedTotal = NumberFormatter.format(totalBalance);
             sender.sendMessage(configManager.getPrefixedMessage("admin.total-balance")
@@ -361,17 +560,31 @@ public class EconomyAdminCommand implements CommandExecutor, TabCompleter {
         String messagePath = freeze ? "admin.account-frozen-success" : "admin.account-unfrozen-success";
         String logType = freeze ? "FREEZE" : "UNFREEZE";
 
-        logger.log(String.format("[%s] Admin: %s | Target: %s (%s)",
-                logType, sender.getName(), target.getName(), target.getUniqueId()));
+        logger.log(LogRecord.admin(logType, senderUuid(sender), sender.getName(), target.getUniqueId(), target.getName()));
 
         sender.sendMessage(configManager.getPrefixedMessage(messagePath).replace("{player}", target.getName()));
     }
 
+    private static UUID senderUuid(CommandSender sender) {
+        return (sender instanceof Player) ? ((Player) sender).getUniqueId() : null;
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (!sender.hasPermission("coreeconomy.command.admin")) return Collections.emptyList();
         if (args.length == 1) {
-            return StringUtil.copyPartialMatches(args[0], Arrays.asList("set", "add", "remove", "freeze", "unfreeze", "reload", "total", "confirm", "history"), new ArrayList<>());
+            return StringUtil.copyPartialMatches(args[0], Arrays.asList("set", "add", "remove", "freeze", "unfreeze", "reload", "total", "confirm", "history", "migrate", "restore", "stats"), new ArrayList<>());
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("migrate")) {
+            List<String> options = new ArrayList<>(STORAGE_TYPES);
+            options.add("status");
+            return StringUtil.copyPartialMatches(args[1], options, new ArrayList<>());
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            return StringUtil.copyPartialMatches(args[1], Arrays.asList("api", "storage", "task", "counters"), new ArrayList<>());
+        }
+        if (args[0].equalsIgnoreCase("restore") || args[0].equalsIgnoreCase("stats")) {
+            return Collections.emptyList();
         }
         if (args.length == 2 && !args[0].equalsIgnoreCase("reload") && !args[0].equalsIgnoreCase("total") && !args[0].equalsIgnoreCase("confirm")) {
             List<String> playerNames = new ArrayList<>();
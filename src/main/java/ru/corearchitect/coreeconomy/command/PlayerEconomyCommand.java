@@ -16,7 +16,9 @@ import ru.corearchitect.coreeconomy.CoreEconomy;
 import ru.corearchitect.coreeconomy.manager.ConfigManager;
 import ru.corearchitect.coreeconomy.manager.EconomyManager;
 import ru.corearchitect.coreeconomy.manager.LeaderboardManager;
+import ru.corearchitect.coreeconomy.model.AccountSnapshot;
 import ru.corearchitect.coreeconomy.model.LeaderboardEntry;
+import ru.corearchitect.coreeconomy.model.Money;
 import ru.corearchitect.coreeconomy.model.TransactionResult;
 import ru.corearchitect.coreeconomy.util.NumberFormatter;
 
@@ -85,6 +87,13 @@ public class PlayerEconomyCommand implements CommandExecutor, TabCompleter {
                 return;
             }
             Player player = (Player) sender;
+            AccountSnapshot cached = economyManager.getCachedAccount(player.getUniqueId());
+            if (cached.isLoaded()) {
+                player.sendMessage(configManager.getPrefixedMessage("balance")
+                        .replace("{balance}", cached.getFormattedBalance())
+                        .replace("{symbol}", configManager.getCurrencySymbol()));
+                return;
+            }
             economyManager.getBalance(player.getUniqueId()).thenAccept(balance -> {
                 String formattedBalance = NumberFormatter.format(balance);
                 player.sendMessage(configManager.getPrefixedMessage("balance")
@@ -92,7 +101,11 @@ public class PlayerEconomyCommand implements CommandExecutor, TabCompleter {
                         .replace("{symbol}", configManager.getCurrencySymbol()));
             });
         } else if (args.length == 2) {
-            OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
+            OfflinePlayer target = plugin.getNameCache().findPlayer(args[1]);
+            if (target == null) {
+                sender.sendMessage(configManager.getPrefixedMessage("player-does-not-exist"));
+                return;
+            }
             economyManager.hasAccount(target.getUniqueId()).thenAccept(hasAccount -> {
                 if (!hasAccount) {
                     sender.sendMessage(configManager.getPrefixedMessage("player-does-not-exist"));
@@ -135,9 +148,9 @@ public class PlayerEconomyCommand implements CommandExecutor, TabCompleter {
 
         BigDecimal amount;
         try {
-            amount = new BigDecimal(args[2].replace(',', '.'));
+            amount = Money.of(new BigDecimal(args[2].replace(',', '.'))).toBigDecimal();
             if (amount.compareTo(BigDecimal.ZERO) <= 0) throw new NumberFormatException();
-        } catch (NumberFormatException e) {
+        } catch (NumberFormatException | ArithmeticException e) {
             player.sendMessage(configManager.getPrefixedMessage("invalid-amount"));
             return;
         }
@@ -177,6 +190,9 @@ public class PlayerEconomyCommand implements CommandExecutor, TabCompleter {
             case CANCELLED_BY_EVENT:
                 sender.sendMessage(configManager.getPrefixedMessage("transaction-cancelled"));
                 break;
+            case INVALID_AMOUNT:
+                sender.sendMessage(configManager.getPrefixedMessage("invalid-amount"));
+                break;
         }
     }
 
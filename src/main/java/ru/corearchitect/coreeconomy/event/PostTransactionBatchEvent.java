@@ -0,0 +1,37 @@
+package ru.corearchitect.coreeconomy.event;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PostTransactionBatchEvent extends Event {
+
+    private static final HandlerList handlers = new HandlerList();
+
+    private final List<PostTransactionEvent> transactions;
+
+    public PostTransactionBatchEvent(List<PostTransactionEvent> transactions) {
+        super(!Bukkit.isPrimaryThread());
+        this.transactions = Collections.unmodifiableList(transactions);
+    }
+
+    public List<PostTransactionEvent> getTransactions() {
+        return transactions;
+    }
+
+    public int size() {
+        return transactions.size();
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return handlers;
+    }
+
+    public static HandlerList getHandlerList() {
+        return handlers;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.corearchitect.coreeconomy.event;
 
+import org.bukkit.Bukkit;
 import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
 import ru.corearchitect.coreeconomy.model.TransactionResult;
@@ -18,6 +19,7 @@ public class PostTransactionEvent extends Event {
     private final TransactionResult result;
 
     public PostTransactionEvent(UUID from, UUID to, BigDecimal amount, BigDecimal commission, TransactionResult result) {
+        super(!Bukkit.isPrimaryThread());
         this.from = from;
         this.to = to;
         this.amount = amount;
@@ -1,5 +1,6 @@
 package ru.corearchitect.coreeconomy.event;
 
+import org.bukkit.Bukkit;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
@@ -17,6 +18,7 @@ public class PreTransactionEvent extends Event implements Cancellable {
     private BigDecimal amount;
 
     public PreTransactionEvent(UUID from, UUID to, BigDecimal amount) {
+        super(!Bukkit.isPrimaryThread());
         this.from = from;
         this.to = to;
         this.amount = amount;
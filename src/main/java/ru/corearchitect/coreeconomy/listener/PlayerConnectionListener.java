@@ -1,30 +1,106 @@
 package ru.corearchitect.coreeconomy.listener;
 
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.manager.DataManager;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class PlayerConnectionListener implements Listener {
 
+    private static final long PRELOAD_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
     private final CoreEconomy plugin;
+    private final Map<UUID, PreloadedAccount> preloadedAccounts = new ConcurrentHashMap<>();
 
     public PlayerConnectionListener(CoreEconomy plugin) {
         this.plugin = plugin;
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID uuid = event.getUniqueId();
+        plugin.getNameCache().remember(uuid, event.getName());
+        discardExpiredPreloads();
+        preloadedAccounts.put(uuid, preload(uuid));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() == PlayerLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID uuid = event.getPlayer().getUniqueId();
+        if (preloadedAccounts.remove(uuid) != null) {
+            plugin.getDataManager().unloadAccount(uuid);
+        }
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
-        plugin.getDataManager().createAccount(player.getUniqueId());
-        plugin.getScoreboardManager().playerJoined(player);
+        UUID uuid = player.getUniqueId();
+        PreloadedAccount account = preloadedAccounts.remove(uuid);
+        if (account != null) {
+            plugin.getScoreboardManager().playerJoined(player, account.scoreboardEnabled, plugin.getDataManager().getBalance(uuid));
+            return;
+        }
+
+        plugin.getNameCache().remember(uuid, player.getName());
+        plugin.getEconomyExecutor().supply(() -> preload(uuid))
+                .thenAccept(loaded -> Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (player.isOnline()) {
+                        plugin.getScoreboardManager().playerJoined(player, loaded.scoreboardEnabled, plugin.getDataManager().getBalance(uuid));
+                    } else if (Bukkit.getPlayer(uuid) == null) {
+                        plugin.getDataManager().unloadAccount(uuid);
+                    }
+                }));
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
+        preloadedAccounts.remove(player.getUniqueId());
         plugin.getScoreboardManager().playerQuit(player);
+        plugin.getDataManager().unloadAccount(player.getUniqueId());
+    }
+
+    private void discardExpiredPreloads() {
+        long deadline = System.currentTimeMillis() - PRELOAD_TIMEOUT_MILLIS;
+        preloadedAccounts.forEach((uuid, account) -> {
+            if (account.loadedAt < deadline && preloadedAccounts.remove(uuid, account)) {
+                plugin.getDataManager().unloadAccount(uuid);
+            }
+        });
+    }
+
+    private PreloadedAccount preload(UUID uuid) {
+        DataManager dataManager = plugin.getDataManager();
+        dataManager.createAccount(uuid);
+        dataManager.loadAccount(uuid);
+        return new PreloadedAccount(dataManager.getScoreboardState(uuid));
+    }
+
+    private static final class PreloadedAccount {
+        final boolean scoreboardEnabled;
+        final long loadedAt = System.currentTimeMillis();
+
+        PreloadedAccount(boolean scoreboardEnabled) {
+            this.scoreboardEnabled = scoreboardEnabled;
+        }
     }
-}
\ No newline at end of file
+}
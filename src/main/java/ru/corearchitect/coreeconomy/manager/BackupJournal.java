@@ -0,0 +1,63 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import ru.corearchitect.coreeconomy.model.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class BackupJournal implements BalanceChangeListener {
+
+    private static final String BALANCE = "B";
+    private static final String FROZEN = "F";
+
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void onBalanceChange(UUID uuid, Money newBalance) {
+        pending.add(System.currentTimeMillis() + " " + BALANCE + " " + uuid + " " + newBalance.getMinorUnits());
+    }
+
+    @Override
+    public void onFrozenChange(UUID uuid, boolean frozen) {
+        pending.add(System.currentTimeMillis() + " " + FROZEN + " " + uuid + " " + (frozen ? 1 : 0));
+    }
+
+    public List<String> drain() {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = pending.poll()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    public static boolean replay(String line, long fromMillis, long toMillis, Map<UUID, Money> balances, Map<UUID, Boolean> frozen) {
+        String[] parts = line.split(" ");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            long timestamp = Long.parseLong(parts[0]);
+            if (timestamp < fromMillis || timestamp > toMillis) {
+                return true;
+            }
+            UUID uuid = UUID.fromString(parts[2]);
+            switch (parts[1]) {
+                case BALANCE:
+                    balances.put(uuid, Money.ofMinor(Long.parseLong(parts[3])));
+                    return true;
+                case FROZEN:
+                    frozen.put(uuid, "1".equals(parts[3]));
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,75 +1,399 @@
 package ru.corearchitect.coreeconomy.manager;
 
+import org.bukkit.command.CommandSender;
 import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.storage.SQLiteSnapshot;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.text.SimpleDateFormat;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class BackupManager {
 
+    private static final String BACKUP_PREFIX = "database-";
+    private static final String BACKUP_SUFFIX = ".db.gz";
+    private static final String SNAPSHOT_SUFFIX = ".db.tmp";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log.gz";
+    private static final String CHECKSUM_SUFFIX = ".sha256";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter SNAPSHOT_STAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final DateTimeFormatter JOURNAL_STAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss-SSS");
+
     private final CoreEconomy plugin;
     private final ConfigManager configManager;
+    private final File backupDir;
+    private final AtomicBoolean restoreRunning = new AtomicBoolean();
+    private final List<String> unshipped = new ArrayList<>();
     private BukkitTask backupTask;
+    private BukkitTask journalTask;
+    private BackupJournal journal;
 
     public BackupManager(CoreEconomy plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
+        this.backupDir = new File(plugin.getDataFolder(), "backups");
     }
 
     public void start() {
-        if (!configManager.isBackupEnabled() || !configManager.getStorageType().equalsIgnoreCase("SQLITE")) {
+        if (!isAvailable()) {
             return;
         }
 
+        MetricsManager metrics = plugin.getMetricsManager();
+        MetricsManager.Timer backupTimer = metrics.timer(MetricsManager.Family.TASK, "backup");
         long interval = configManager.getBackupIntervalHours() * 20L * 60L * 60L;
         this.backupTask = new BukkitRunnable() {
             @Override
             public void run() {
-                createBackup();
+                backupTimer.time(BackupManager.this::createBackup);
             }
         }.runTaskTimerAsynchronously(plugin, interval, interval);
+
+        if (configManager.isIncrementalBackupEnabled()) {
+            this.journal = new BackupJournal();
+            plugin.getDataManager().addBalanceListener(journal);
+            MetricsManager.Timer journalTimer = metrics.timer(MetricsManager.Family.TASK, "backup_journal");
+            long journalInterval = Math.max(1, configManager.getIncrementalBackupIntervalMinutes()) * 20L * 60L;
+            this.journalTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    journalTimer.time(BackupManager.this::shipJournal);
+                }
+            }.runTaskTimerAsynchronously(plugin, journalInterval, journalInterval);
+        }
     }
 
     public void stop() {
         if (backupTask != null) {
             backupTask.cancel();
         }
+        if (journalTask != null) {
+            journalTask.cancel();
+        }
+        if (journal != null) {
+            plugin.getDataManager().removeBalanceListener(journal);
+            shipJournal();
+        }
     }
 
-    private void createBackup() {
+    public boolean isAvailable() {
+        return configManager.isBackupEnabled() && plugin.getDataManager().getStorageType().equals("SQLITE");
+    }
+
+    private synchronized void createBackup() {
         File dbFile = new File(plugin.getDataFolder(), configManager.getSQLiteFilename());
         if (!dbFile.exists()) {
             return;
         }
 
-        File backupDir = new File(plugin.getDataFolder(), "backups");
         if (!backupDir.exists()) {
             backupDir.mkdirs();
         }
 
-        String timestamp = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
-        File backupFile = new File(backupDir, "database-" + timestamp + ".db.bak");
+        String timestamp = LocalDateTime.now().format(SNAPSHOT_STAMP);
+        File snapshotFile = new File(backupDir, BACKUP_PREFIX + timestamp + SNAPSHOT_SUFFIX);
+        File backupFile = new File(backupDir, BACKUP_PREFIX + timestamp + BACKUP_SUFFIX);
 
+        Thread thread = Thread.currentThread();
+        int priority = thread.getPriority();
+        thread.setPriority(Thread.MIN_PRIORITY);
+        long start = System.currentTimeMillis();
         try {
-            Files.copy(dbFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            plugin.getLogger().info("Database backup created successfully: " + backupFile.getName());
-            rotateBackups(backupDir);
-        } catch (IOException e) {
+            shipJournal();
+            plugin.getDataManager().saveAllData();
+            SQLiteSnapshot.vacuumInto(dbFile, snapshotFile);
+            String integrity = SQLiteSnapshot.quickCheck(snapshotFile);
+            if (!"ok".equalsIgnoreCase(integrity)) {
+                plugin.getLogger().severe("Database snapshot failed quick_check (" + integrity + "), backup discarded. Older backups were kept.");
+                return;
+            }
+
+            String checksum;
+            try (InputStream in = new FileInputStream(snapshotFile)) {
+                checksum = writeCompressed(in, backupFile);
+            }
+            if (!checksum.equals(readCompressed(backupFile, null))) {
+                plugin.getLogger().severe("Backup " + backupFile.getName() + " does not match its checksum, backup discarded. Older backups were kept.");
+                deleteBackup(backupFile);
+                return;
+            }
+
+            plugin.getLogger().info("Database backup created successfully: " + backupFile.getName()
+                    + " (" + backupFile.length() / 1024 + " KB, " + (System.currentTimeMillis() - start) + " ms)");
+            rotateBackups();
+        } catch (IOException | SQLException e) {
             plugin.getLogger().severe("Failed to create database backup!");
             e.printStackTrace();
+            deleteBackup(backupFile);
+        } finally {
+            snapshotFile.delete();
+            thread.setPriority(priority);
+        }
+    }
+
+    private synchronized void shipJournal() {
+        if (journal == null) {
+            return;
+        }
+        unshipped.addAll(journal.drain());
+        if (unshipped.isEmpty()) {
+            return;
+        }
+
+        if (!backupDir.exists()) {
+            backupDir.mkdirs();
+        }
+        StringBuilder content = new StringBuilder(unshipped.size() * 64);
+        for (String line : unshipped) {
+            content.append(line).append('\n');
+        }
+        File segment = new File(backupDir, JOURNAL_PREFIX + LocalDateTime.now().format(JOURNAL_STAMP) + JOURNAL_SUFFIX);
+        try {
+            writeCompressed(new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)), segment);
+            unshipped.clear();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to write incremental backup " + segment.getName() + ", will retry with the next one.");
+            e.printStackTrace();
+            deleteBackup(segment);
+        }
+    }
+
+    public boolean startRestore(LocalDateTime pointInTime, CommandSender sender) {
+        if (!restoreRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                try {
+                    plugin.getMetricsManager().timer(MetricsManager.Family.TASK, "restore").time(() -> restore(pointInTime, sender));
+                } finally {
+                    restoreRunning.set(false);
+                }
+            }
+        }.runTaskAsynchronously(plugin);
+        return true;
+    }
+
+    private void restore(LocalDateTime pointInTime, CommandSender sender) {
+        String targetStamp = pointInTime.format(SNAPSHOT_STAMP);
+        long targetMillis = pointInTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String displayTime = pointInTime.format(DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss"));
+
+        shipJournal();
+        File snapshot = null;
+        for (File file : listSorted(BACKUP_PREFIX, BACKUP_SUFFIX)) {
+            if (stampOf(file, BACKUP_PREFIX, BACKUP_SUFFIX).compareTo(targetStamp) <= 0) {
+                snapshot = file;
+            }
+        }
+        if (snapshot == null) {
+            sender.sendMessage(configManager.getPrefixedMessage("admin.restore-no-snapshot").replace("{time}", displayTime));
+            return;
+        }
+
+        String snapshotStamp = stampOf(snapshot, BACKUP_PREFIX, BACKUP_SUFFIX);
+        long fromMillis = LocalDateTime.parse(snapshotStamp, SNAPSHOT_STAMP).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        File restored = new File(backupDir, "restore-" + targetStamp + ".db");
+        try {
+            try (OutputStream out = new FileOutputStream(restored)) {
+                verifyChecksum(snapshot, readCompressed(snapshot, out));
+            }
+
+            List<File> segments = new ArrayList<>();
+            for (File file : listSorted(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+                String stamp = stampOf(file, JOURNAL_PREFIX, JOURNAL_SUFFIX);
+                if (stamp.compareTo(snapshotStamp) < 0) {
+                    continue;
+                }
+                segments.add(file);
+                if (stamp.compareTo(targetStamp) > 0) {
+                    break;
+                }
+            }
+            sender.sendMessage(configManager.getPrefixedMessage("admin.restore-started")
+                    .replace("{time}", displayTime)
+                    .replace("{snapshot}", snapshot.getName())
+                    .replace("{segments}", String.valueOf(segments.size())));
+
+            Map<UUID, Money> balances = new HashMap<>();
+            Map<UUID, Boolean> frozen = new HashMap<>();
+            long entries = 0;
+            int nextReport = 25;
+            for (int i = 0; i < segments.size(); i++) {
+                File segment = segments.get(i);
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                verifyChecksum(segment, readCompressed(segment, content));
+                for (String line : content.toString(StandardCharsets.UTF_8.name()).split("\n")) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (!BackupJournal.replay(line, fromMillis, targetMillis, balances, frozen)) {
+                        throw new IOException("Malformed entry in " + segment.getName() + ": " + line);
+                    }
+                    entries++;
+                }
+
+                int percent = (i + 1) * 100 / segments.size();
+                if (percent >= nextReport && i + 1 < segments.size()) {
+                    nextReport = (percent / 25 + 1) * 25;
+                    sender.sendMessage(configManager.getPrefixedMessage("admin.restore-progress")
+                            .replace("{percent}", String.valueOf(percent))
+                            .replace("{entries}", String.valueOf(entries)));
+                }
+            }
+
+            SQLiteSnapshot.restoreAccounts(restored, balances, frozen, configManager.isScoreboardEnabledByDefault());
+            String integrity = SQLiteSnapshot.quickCheck(restored);
+            if (!"ok".equalsIgnoreCase(integrity)) {
+                throw new IOException("restored database failed quick_check: " + integrity);
+            }
+
+            plugin.getLogger().info("Restored state as of " + displayTime + " into " + restored.getName() + " from " + snapshot.getName()
+                    + " and " + segments.size() + " journal segments (" + entries + " entries).");
+            sender.sendMessage(configManager.getPrefixedMessage("admin.restore-completed")
+                    .replace("{time}", displayTime)
+                    .replace("{file}", "backups/" + restored.getName())
+                    .replace("{accounts}", String.valueOf(balances.size()))
+                    .replace("{database}", configManager.getSQLiteFilename()));
+        } catch (IOException | SQLException | RuntimeException e) {
+            plugin.getLogger().severe("Point-in-time restore to " + displayTime + " failed!");
+            e.printStackTrace();
+            restored.delete();
+            String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            sender.sendMessage(configManager.getPrefixedMessage("admin.restore-failed").replace("{reason}", reason));
+        }
+    }
+
+    private String writeCompressed(InputStream in, File target) throws IOException {
+        MessageDigest digest = newDigest();
+        long bytesPerSecond = Math.max(0, configManager.getBackupMaxMegabytesPerSecond()) * 1024L * 1024L;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+        long start = System.nanoTime();
+        try (FileOutputStream file = new FileOutputStream(target);
+             GZIPOutputStream out = new GZIPOutputStream(new DigestOutputStream(file, digest), BUFFER_SIZE)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                written += read;
+                if (bytesPerSecond > 0) {
+                    long aheadNanos = written * 1_000_000_000L / bytesPerSecond - (System.nanoTime() - start);
+                    if (aheadNanos > 0) {
+                        try {
+                            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Backup interrupted", e);
+                        }
+                    }
+                }
+            }
+            out.finish();
+            file.getFD().sync();
+        }
+
+        String checksum = toHex(digest.digest());
+        Files.write(checksumFile(target).toPath(), (checksum + "  " + target.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+        return checksum;
+    }
+
+    private String readCompressed(File source, OutputStream out) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (GZIPInputStream in = new GZIPInputStream(new DigestInputStream(new FileInputStream(source), digest), BUFFER_SIZE)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (out != null) {
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private void verifyChecksum(File file, String actual) throws IOException {
+        File checksumFile = checksumFile(file);
+        if (!checksumFile.exists()) {
+            throw new IOException("missing checksum file for " + file.getName());
         }
+        String expected = new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8).trim().split("\\s+")[0];
+        if (!expected.equalsIgnoreCase(actual)) {
+            throw new IOException(file.getName() + " does not match its checksum");
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static File checksumFile(File file) {
+        return new File(file.getParentFile(), file.getName() + CHECKSUM_SUFFIX);
+    }
+
+    private void deleteBackup(File backupFile) {
+        backupFile.delete();
+        checksumFile(backupFile).delete();
+    }
+
+    private List<File> listSorted(String prefix, String suffix) {
+        File[] files = backupDir.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(suffix));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        return Arrays.asList(files);
+    }
+
+    private static String stampOf(File file, String prefix, String suffix) {
+        String name = file.getName();
+        return name.substring(prefix.length(), name.length() - suffix.length());
     }
 
-    private void rotateBackups(File backupDir) {
-        File[] backupFiles = backupDir.listFiles((dir, name) -> name.endsWith(".bak"));
+    private void rotateBackups() {
+        File[] backupFiles = backupDir.listFiles((dir, name) -> name.endsWith(BACKUP_SUFFIX) || name.endsWith(".bak"));
         if (backupFiles == null || backupFiles.length <= configManager.getMaxBackupFiles()) {
             return;
         }
@@ -78,11 +402,24 @@ public class BackupManager {
 
         int filesToDelete = backupFiles.length - configManager.getMaxBackupFiles();
         for (int i = 0; i < filesToDelete; i++) {
+            checksumFile(backupFiles[i]).delete();
             if (backupFiles[i].delete()) {
                 plugin.getLogger().info("Deleted old backup: " + backupFiles[i].getName());
             } else {
                 plugin.getLogger().warning("Failed to delete old backup: " + backupFiles[i].getName());
             }
         }
+
+        List<File> snapshots = listSorted(BACKUP_PREFIX, BACKUP_SUFFIX);
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        String oldestSnapshot = stampOf(snapshots.get(0), BACKUP_PREFIX, BACKUP_SUFFIX);
+        for (File segment : listSorted(JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+            if (stampOf(segment, JOURNAL_PREFIX, JOURNAL_SUFFIX).compareTo(oldestSnapshot) >= 0) {
+                break;
+            }
+            deleteBackup(segment);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import ru.corearchitect.coreeconomy.model.Money;
+
+import java.util.UUID;
+
+@FunctionalInterface
+public interface BalanceChangeListener {
+
+    void onBalanceChange(UUID uuid, Money newBalance);
+
+    default void onFrozenChange(UUID uuid, boolean frozen) {
+    }
+}
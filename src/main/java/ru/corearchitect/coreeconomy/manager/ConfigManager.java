@@ -1,6 +1,7 @@
 package ru.corearchitect.coreeconomy.manager;
 
 import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import ru.corearchitect.coreeconomy.CoreEconomy;
@@ -8,7 +9,9 @@ import ru.corearchitect.coreeconomy.CoreEconomy;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class ConfigManager {
@@ -93,14 +96,18 @@ public class ConfigManager {
         return mainConfig.getString("admin-command.name", "ecoadmin");
     }
 
-    public int getLeaderboardUpdateInterval() {
-        return mainConfig.getInt("leaderboard.update-interval-minutes", 1);
+    public int getNameCacheSize() {
+        return mainConfig.getInt("name-cache.size", 10000);
     }
 
     public int getLeaderboardSize() {
         return mainConfig.getInt("leaderboard.size", 10);
     }
 
+    public int getYamlCompactThreshold() {
+        return mainConfig.getInt("data-storage.yaml.compact-after-changes", 10000);
+    }
+
     public int getAutosaveInterval() {
         return mainConfig.getInt("data-storage.autosave-interval-minutes", 5);
     }
@@ -113,14 +120,113 @@ public class ConfigManager {
         return mainConfig.getDouble("commission.percentage", 0.0);
     }
 
+    public int getAccountLockStripes() {
+        return mainConfig.getInt("concurrency.lock-stripes", 64);
+    }
+
+    public int getExecutorThreads() {
+        return mainConfig.getInt("concurrency.executor.threads", 4);
+    }
+
+    public int getExecutorQueueSize() {
+        return mainConfig.getInt("concurrency.executor.queue-size", 1024);
+    }
+
+    public boolean isExecutorVirtualThreads() {
+        return mainConfig.getBoolean("concurrency.executor.virtual-threads", false);
+    }
+
     public String getStorageType() {
         return mainConfig.getString("data-storage.type", "SQLITE");
     }
 
+    public void setStorageType(String type) {
+        mainConfig.set("data-storage.type", type);
+        plugin.saveConfig();
+    }
+
+    public int getMigrationChunkSize() {
+        return mainConfig.getInt("data-storage.migration.chunk-size", 1000);
+    }
+
+    public long getMigrationPauseMillis() {
+        return mainConfig.getLong("data-storage.migration.pause-between-chunks-millis", 10L);
+    }
+
     public String getSQLiteFilename() {
         return mainConfig.getString("data-storage.sqlite.filename", "database.db");
     }
 
+    public String getMappedFileName() {
+        return mainConfig.getString("data-storage.mapped.filename", "accounts.dat");
+    }
+
+    public int getMappedInitialCapacity() {
+        return mainConfig.getInt("data-storage.mapped.initial-capacity", 65536);
+    }
+
+    public int getSQLiteFlushIntervalSeconds() {
+        return mainConfig.getInt("data-storage.sqlite.cache.flush-interval-seconds", 10);
+    }
+
+    public int getSQLiteCacheEvictAfterSeconds() {
+        return mainConfig.getInt("data-storage.sqlite.cache.evict-after-seconds", 300);
+    }
+
+    public int getSQLiteReaderConnections() {
+        return mainConfig.getInt("data-storage.sqlite.pool.readers", 4);
+    }
+
+    public Map<String, String> getSQLitePragmas() {
+        Map<String, String> pragmas = new LinkedHashMap<>();
+        pragmas.put("journal_mode", "WAL");
+        pragmas.put("synchronous", "NORMAL");
+        pragmas.put("busy_timeout", "5000");
+        ConfigurationSection section = mainConfig.getConfigurationSection("data-storage.sqlite.pragmas");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                pragmas.put(key, section.getString(key));
+            }
+        }
+        return pragmas;
+    }
+
+    public int getJournalQueueSize() {
+        return mainConfig.getInt("data-storage.journal.queue-size", 8192);
+    }
+
+    public int getJournalBatchSize() {
+        return mainConfig.getInt("data-storage.journal.batch-size", 256);
+    }
+
+    public long getJournalMaxDelayMillis() {
+        return mainConfig.getLong("data-storage.journal.max-delay-ms", 50L);
+    }
+
+    public String getTransactionLogFormat() {
+        return mainConfig.getString("transaction-log.format", "TEXT");
+    }
+
+    public int getTransactionLogBufferSize() {
+        return mainConfig.getInt("transaction-log.buffer-size", 8192);
+    }
+
+    public long getTransactionLogFlushIntervalMillis() {
+        return mainConfig.getLong("transaction-log.flush-interval-ms", 1000L);
+    }
+
+    public int getTransactionLogMaxFileSizeMegabytes() {
+        return mainConfig.getInt("transaction-log.max-file-size-mb", 10);
+    }
+
+    public boolean isTransactionLogDailyRolling() {
+        return mainConfig.getBoolean("transaction-log.roll-daily", true);
+    }
+
+    public boolean isTransactionLogCompressRolled() {
+        return mainConfig.getBoolean("transaction-log.compress-rolled", true);
+    }
+
     public boolean isBackupEnabled() {
         return mainConfig.getBoolean("backups.enabled", true);
     }
@@ -133,7 +239,67 @@ public class ConfigManager {
         return mainConfig.getInt("backups.max-files", 7);
     }
 
+    public int getBackupMaxMegabytesPerSecond() {
+        return mainConfig.getInt("backups.max-megabytes-per-second", 16);
+    }
+
+    public boolean isIncrementalBackupEnabled() {
+        return mainConfig.getBoolean("backups.incremental.enabled", true);
+    }
+
+    public int getIncrementalBackupIntervalMinutes() {
+        return mainConfig.getInt("backups.incremental.interval-minutes", 5);
+    }
+
     public int getHistoryEntriesPerPage() {
         return mainConfig.getInt("history.entries-per-page", 10);
     }
+
+    public boolean isMetricsExportEnabled() {
+        return mainConfig.getBoolean("metrics.prometheus-file.enabled", true);
+    }
+
+    public String getMetricsExportFile() {
+        return mainConfig.getString("metrics.prometheus-file.file", "metrics.prom");
+    }
+
+    public int getMetricsExportIntervalSeconds() {
+        return mainConfig.getInt("metrics.prometheus-file.interval-seconds", 15);
+    }
+
+    public boolean isSlowTraceEnabled() {
+        return mainConfig.getBoolean("tracing.slow-operations.enabled", false);
+    }
+
+    public long getSlowTraceThresholdMillis() {
+        return mainConfig.getLong("tracing.slow-operations.threshold-ms", 250L);
+    }
+
+    public String getSlowTraceFile() {
+        return mainConfig.getString("tracing.slow-operations.file", "slow-operations.log");
+    }
+
+    public long getSlowTraceMaxFileSizeKb() {
+        return mainConfig.getLong("tracing.slow-operations.max-file-size-kb", 1024L);
+    }
+
+    public int getSlowTraceMaxFiles() {
+        return mainConfig.getInt("tracing.slow-operations.max-files", 5);
+    }
+
+    public long getPreTransactionEventBudgetMillis() {
+        return mainConfig.getLong("events.pre-transaction.budget-ms", 50L);
+    }
+
+    public String getPostTransactionEventMode() {
+        return mainConfig.getString("events.post-transaction.mode", "MAIN_THREAD");
+    }
+
+    public int getPostTransactionEventBatchSize() {
+        return mainConfig.getInt("events.post-transaction.max-batch-size", 500);
+    }
+
+    public int getAggregatesRecountIntervalMinutes() {
+        return mainConfig.getInt("data-storage.aggregates.recount-interval-minutes", 30);
+    }
 }
@@ -1,65 +1,154 @@
 package ru.corearchitect.coreeconomy.manager;
 
+import org.bukkit.command.CommandSender;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.AccountSnapshot;
+import ru.corearchitect.coreeconomy.model.Money;
 import ru.corearchitect.coreeconomy.model.TransactionRecord;
+import ru.corearchitect.coreeconomy.storage.InstrumentedStorageProvider;
+import ru.corearchitect.coreeconomy.storage.MappedStorageProvider;
 import ru.corearchitect.coreeconomy.storage.SQLiteStorageProvider;
 import ru.corearchitect.coreeconomy.storage.StorageProvider;
+import ru.corearchitect.coreeconomy.storage.TransactionJournal;
 import ru.corearchitect.coreeconomy.storage.YamlStorageProvider;
+import ru.corearchitect.coreeconomy.util.StripedLock;
 
 import java.io.File;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DataManager {
 
     private final CoreEconomy plugin;
-    private final StorageProvider storageProvider;
+    private final TransactionJournal transactionJournal;
+    private final List<BalanceChangeListener> balanceListeners = new CopyOnWriteArrayList<>();
+    private final OnlineAccountView onlineAccounts = new OnlineAccountView();
+    private final StripedLock accountLocks;
+    private final ServerAggregates aggregates;
+    private volatile StorageProvider storageProvider;
+    private volatile String storageType;
+    private StorageMigrator migrator;
 
     public DataManager(CoreEconomy plugin) {
         this.plugin = plugin;
-        String storageType = plugin.getConfigManager().getStorageType();
-
-        if (storageType.equalsIgnoreCase("SQLITE")) {
-            this.storageProvider = new SQLiteStorageProvider(plugin);
+        this.accountLocks = new StripedLock(plugin.getConfigManager().getAccountLockStripes());
+        String configuredType = plugin.getConfigManager().getStorageType().toUpperCase(Locale.ROOT);
+        this.storageType = configuredType.equals("SQLITE") || configuredType.equals("MAPPED") ? configuredType : "YAML";
+        this.storageProvider = createStorageProvider(storageType);
+        if (!storageType.equals("YAML")) {
             handleMigration();
-        } else {
-            this.storageProvider = new YamlStorageProvider(plugin);
         }
+        this.transactionJournal = new TransactionJournal(plugin, storageProvider);
+        this.aggregates = new ServerAggregates(plugin, this);
+        this.balanceListeners.add(onlineAccounts);
+    }
+
+    StorageProvider createStorageProvider(String type) {
+        StorageProvider provider;
+        switch (type) {
+            case "SQLITE":
+                provider = new SQLiteStorageProvider(plugin);
+                break;
+            case "MAPPED":
+                provider = new MappedStorageProvider(plugin);
+                break;
+            default:
+                provider = new YamlStorageProvider(plugin);
+        }
+        return new InstrumentedStorageProvider(provider, plugin.getMetricsManager());
     }
 
     private void handleMigration() {
-        File oldDataFile = new File(plugin.getDataFolder(), "balances.yml");
+        if (new File(plugin.getDataFolder(), YamlStorageProvider.CHANGE_LOG_FILE_NAME).exists()) {
+            plugin.getLogger().info("Applying pending YAML change log before migration...");
+            new YamlStorageProvider(plugin).close();
+        }
+
+        File oldDataFile = new File(plugin.getDataFolder(), YamlStorageProvider.DATA_FILE_NAME);
         if (!oldDataFile.exists()) {
             return;
         }
 
-        plugin.getLogger().info("Old balances.yml found. Starting migration to SQLite...");
+        plugin.getLogger().info("Old balances.yml found. Starting migration to " + storageType + "...");
         FileConfiguration oldConfig = YamlConfiguration.loadConfiguration(oldDataFile);
         boolean success = storageProvider.migrateFrom(oldConfig);
 
         if (success) {
-            File migratedFile = new File(plugin.getDataFolder(), "balances.yml.migrated");
-            try {
-                Files.move(oldDataFile.toPath(), migratedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                plugin.getLogger().info("Migration successful. Old data file renamed to balances.yml.migrated");
-            } catch (IOException e) {
-                plugin.getLogger().severe("Migration was successful, but failed to rename old data file.");
-                e.printStackTrace();
-            }
+            archiveYamlData();
         } else {
-            plugin.getLogger().severe("MIGRATION FAILED. The server will continue to use SQLite, but old balances were not transferred. Please check logs.");
+            plugin.getLogger().severe("MIGRATION FAILED. The server will continue to use " + storageType + ", but old balances were not transferred. Please check logs.");
+        }
+    }
+
+    private void archiveYamlData() {
+        File oldDataFile = new File(plugin.getDataFolder(), YamlStorageProvider.DATA_FILE_NAME);
+        File migratedFile = new File(plugin.getDataFolder(), "balances.yml.migrated");
+        try {
+            Files.move(oldDataFile.toPath(), migratedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            plugin.getLogger().info("Migration successful. Old data file renamed to balances.yml.migrated");
+        } catch (IOException e) {
+            plugin.getLogger().severe("Migration was successful, but failed to rename old data file.");
+            e.printStackTrace();
         }
     }
 
+    public synchronized StorageMigrator startMigration(String targetType, CommandSender requester) {
+        if ((migrator != null && migrator.isRunning()) || aggregates.isRecounting()) {
+            return null;
+        }
+        migrator = new StorageMigrator(plugin, this, storageProvider, storageType, targetType, requester);
+        migrator.start();
+        return migrator;
+    }
+
+    public synchronized StorageMigrator getMigrator() {
+        return migrator;
+    }
+
+    public String getStorageType() {
+        return storageType;
+    }
+
+    StripedLock getAccountLocks() {
+        return accountLocks;
+    }
+
+    StorageProvider getStorageProvider() {
+        return storageProvider;
+    }
+
+    void swapStorageProvider(StorageProvider provider) {
+        this.storageProvider = provider;
+        transactionJournal.setStorageProvider(provider);
+    }
+
+    void completeMigration(StorageProvider source, String sourceType, String targetType) {
+        this.storageType = targetType;
+        plugin.getConfigManager().setStorageType(targetType);
+        plugin.restartAutosaveTask();
+        source.close();
+        if (sourceType.equals("YAML")) {
+            archiveYamlData();
+        }
+        aggregates.invalidate();
+    }
+
     public void shutdown() {
+        StorageMigrator running = getMigrator();
+        if (running != null && running.isRunning()) {
+            running.cancel();
+        }
+        aggregates.stop();
+        transactionJournal.close();
         storageProvider.close();
     }
 
@@ -68,19 +157,84 @@ public class DataManager {
     }
 
     public void createAccount(UUID uuid) {
-        storageProvider.createAccount(uuid);
+        if (storageProvider.hasAccount(uuid)) {
+            return;
+        }
+        Money balance = accountLocks.withLock(uuid, () -> {
+            if (storageProvider.hasAccount(uuid)) {
+                return null;
+            }
+            storageProvider.createAccount(uuid);
+            Money created = storageProvider.getBalance(uuid);
+            aggregates.onAccountCreated(uuid, created);
+            return created;
+        });
+        if (balance != null) {
+            fireBalanceChange(uuid, balance);
+        }
+    }
+
+    public void loadAccount(UUID uuid) {
+        storageProvider.loadAccount(uuid);
+        onlineAccounts.load(uuid, key -> AccountSnapshot.of(storageProvider.getBalance(key), storageProvider.isFrozen(key)));
+    }
+
+    public void unloadAccount(UUID uuid) {
+        onlineAccounts.unload(uuid);
+        storageProvider.unloadAccount(uuid);
+    }
+
+    public OnlineAccountView getOnlineAccounts() {
+        return onlineAccounts;
     }
 
     public boolean hasAccount(UUID uuid) {
         return storageProvider.hasAccount(uuid);
     }
 
-    public BigDecimal getBalance(UUID uuid) {
+    public Money getBalance(UUID uuid) {
         return storageProvider.getBalance(uuid);
     }
 
-    public void setBalance(UUID uuid, BigDecimal amount) {
-        storageProvider.setBalance(uuid, amount);
+    public void setBalance(UUID uuid, Money amount) {
+        accountLocks.withLock(uuid, () -> {
+            Money previous = storageProvider.getBalance(uuid);
+            storageProvider.setBalance(uuid, amount);
+            aggregates.onBalanceChange(uuid, previous, amount);
+            return null;
+        });
+        fireBalanceChange(uuid, amount);
+    }
+
+    public void saveName(UUID uuid, String name) {
+        storageProvider.saveName(uuid, name);
+    }
+
+    public String loadName(UUID uuid) {
+        return storageProvider.loadName(uuid);
+    }
+
+    public UUID loadUuid(String name) {
+        return storageProvider.loadUuid(name);
+    }
+
+    public void addBalanceListener(BalanceChangeListener listener) {
+        balanceListeners.add(listener);
+    }
+
+    public void removeBalanceListener(BalanceChangeListener listener) {
+        balanceListeners.remove(listener);
+    }
+
+    private void fireBalanceChange(UUID uuid, Money balance) {
+        for (BalanceChangeListener listener : balanceListeners) {
+            try {
+                listener.onBalanceChange(uuid, balance);
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Balance listener failed for " + uuid + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
     }
 
     public boolean isFrozen(UUID uuid) {
@@ -88,7 +242,20 @@ public class DataManager {
     }
 
     public void setFrozen(UUID uuid, boolean frozen) {
-        storageProvider.setFrozen(uuid, frozen);
+        accountLocks.withLock(uuid, () -> {
+            boolean previous = storageProvider.isFrozen(uuid);
+            storageProvider.setFrozen(uuid, frozen);
+            aggregates.onFrozenChange(uuid, previous, frozen);
+            return null;
+        });
+        for (BalanceChangeListener listener : balanceListeners) {
+            try {
+                listener.onFrozenChange(uuid, frozen);
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Balance listener failed for " + uuid + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
     }
 
     public boolean getScoreboardState(UUID uuid) {
@@ -99,28 +266,40 @@ public class DataManager {
         storageProvider.setScoreboardState(uuid, enabled);
     }
 
-    public Map<UUID, BigDecimal> getAllBalances() {
+    public Map<UUID, Money> getAllBalances() {
         return storageProvider.getAllBalances();
     }
 
-    public void addCommission(BigDecimal amount) {
-        storageProvider.addCommission(amount);
+    public void addCommission(Money amount) {
+        aggregates.addCommission(storageProvider, amount);
+    }
+
+    public Money getTotalCommission() {
+        return aggregates.isReady() ? aggregates.getTotalCommission() : storageProvider.getTotalCommission();
     }
 
-    public BigDecimal getTotalCommission() {
-        return storageProvider.getTotalCommission();
+    public Money calculateTotalBalance() {
+        return aggregates.isReady() ? aggregates.getMoneySupply() : storageProvider.calculateTotalBalance();
     }
 
-    public BigDecimal calculateTotalBalance() {
-        return storageProvider.calculateTotalBalance();
+    public ServerAggregates getAggregates() {
+        return aggregates;
     }
 
     public void logTransaction(TransactionRecord record) {
-        storageProvider.logTransaction(record);
+        transactionJournal.append(record);
+    }
+
+    public void logTransactions(List<TransactionRecord> records) {
+        transactionJournal.appendAll(records);
+    }
+
+    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, long cursorId, boolean older) {
+        return storageProvider.getPlayerHistory(playerUuid, cursorId, older, plugin.getConfigManager().getHistoryEntriesPerPage());
     }
 
-    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, int page) {
-        return storageProvider.getPlayerHistory(playerUuid, page);
+    public TransactionJournal getTransactionJournal() {
+        return transactionJournal;
     }
 
     public CompletableFuture<Integer> countPlayerHistory(UUID playerUuid) {
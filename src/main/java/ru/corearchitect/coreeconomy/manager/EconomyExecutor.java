@@ -0,0 +1,203 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import org.bukkit.Bukkit;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class EconomyExecutor implements Executor {
+
+    private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final CoreEconomy plugin;
+    private final ExecutorService delegate;
+    private final ThreadPoolExecutor pool;
+    private final Semaphore virtualPermits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public EconomyExecutor(CoreEconomy plugin) {
+        this.plugin = plugin;
+        ConfigManager config = plugin.getConfigManager();
+        int threads = Math.max(1, config.getExecutorThreads());
+        int queueSize = Math.max(1, config.getExecutorQueueSize());
+
+        ExecutorService virtual = config.isExecutorVirtualThreads() ? createVirtualExecutor() : null;
+        if (virtual != null) {
+            this.delegate = virtual;
+            this.pool = null;
+            this.virtualPermits = new Semaphore(threads + queueSize);
+            plugin.getLogger().info("Economy executor is running on virtual threads.");
+        } else {
+            this.pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueSize), new NamedThreadFactory(), this::reject);
+            this.pool.allowCoreThreadTimeOut(true);
+            this.delegate = pool;
+            this.virtualPermits = null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.incrementAndGet();
+        if (virtualPermits != null && !virtualPermits.tryAcquire()) {
+            if (onSaturated()) {
+                inFlight.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    inFlight.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+                return;
+            }
+            try {
+                virtualPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Interrupted while waiting for the economy executor");
+            }
+        }
+
+        inFlight.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                WORKER.set(Boolean.TRUE);
+                try {
+                    command.run();
+                } finally {
+                    inFlight.decrementAndGet();
+                    completed.incrementAndGet();
+                    if (virtualPermits != null) {
+                        virtualPermits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            if (virtualPermits != null) {
+                virtualPermits.release();
+                rejected.incrementAndGet();
+            }
+            throw e;
+        }
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, this);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public CompletableFuture<Void> run(Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, this);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor executor) {
+        if (onSaturated()) {
+            task.run();
+            return;
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Interrupted while waiting for the economy executor");
+        }
+        if (executor.isShutdown() && executor.remove(task)) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Economy executor has been shut down");
+        }
+    }
+
+    private boolean onSaturated() {
+        if (delegate.isShutdown()) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Economy executor has been shut down");
+        }
+        if (WORKER.get()) {
+            return true;
+        }
+        if (Bukkit.isPrimaryThread()) {
+            long count = rejected.incrementAndGet();
+            if (count == 1 || count % 1000 == 0) {
+                plugin.getLogger().warning("Economy executor is saturated (" + count + " rejected tasks so far), failing requests from the server thread.");
+            }
+            throw new RejectedExecutionException("Economy executor is saturated");
+        }
+        return false;
+    }
+
+    public int getQueueDepth() {
+        return pool != null ? pool.getQueue().size() : 0;
+    }
+
+    public int getActiveCount() {
+        return pool != null ? pool.getActiveCount() : inFlight.get();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Economy executor did not finish in time, " + (getQueueDepth() + getActiveCount()) + " tasks were dropped.");
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        plugin.getLogger().info("Economy executor stopped. Completed: " + getCompletedCount() + ", rejected: " + getRejectedCount());
+    }
+
+    private ExecutorService createVirtualExecutor() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method name = builderType.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, "CoreEconomy-Virtual-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, threadFactory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            plugin.getLogger().warning("Virtual threads are not supported by this runtime, falling back to a platform thread pool.");
+            return null;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "CoreEconomy-Worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,84 +1,145 @@
 package ru.corearchitect.coreeconomy.manager;
 
-import org.bukkit.Bukkit;
 import ru.corearchitect.coreeconomy.CoreEconomy;
 import ru.corearchitect.coreeconomy.api.EconomyAPI;
-import ru.corearchitect.coreeconomy.event.PostTransactionEvent;
 import ru.corearchitect.coreeconomy.event.PreTransactionEvent;
+import ru.corearchitect.coreeconomy.model.AccountSnapshot;
+import ru.corearchitect.coreeconomy.model.BatchResult;
+import ru.corearchitect.coreeconomy.model.LogRecord;
+import ru.corearchitect.coreeconomy.model.Money;
 import ru.corearchitect.coreeconomy.model.TransactionRecord;
 import ru.corearchitect.coreeconomy.model.TransactionResult;
 import ru.corearchitect.coreeconomy.model.TransactionType;
+import ru.corearchitect.coreeconomy.model.Transfer;
 import ru.corearchitect.coreeconomy.util.NumberFormatter;
+import ru.corearchitect.coreeconomy.util.OperationTrace;
+import ru.corearchitect.coreeconomy.util.StripedLock;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 public class EconomyManager implements EconomyAPI {
 
     private final CoreEconomy plugin;
     private final DataManager dataManager;
+    private final NameCache nameCache;
+    private final StripedLock accountLocks;
+    private final EconomyExecutor executor;
+    private final MetricsManager metrics;
+    private final SlowOperationTracer tracer;
+    private final TransactionEventDispatcher eventDispatcher;
+    private final Map<TransactionResult, MetricsManager.Counter> transferResults = new EnumMap<>(TransactionResult.class);
+    private final MetricsManager.Counter cachedAccountHits;
+    private final MetricsManager.Counter cachedAccountMisses;
 
     public EconomyManager(CoreEconomy plugin) {
         this.plugin = plugin;
         this.dataManager = plugin.getDataManager();
+        this.nameCache = plugin.getNameCache();
+        this.executor = plugin.getEconomyExecutor();
+        this.accountLocks = dataManager.getAccountLocks();
+        this.metrics = plugin.getMetricsManager();
+        this.tracer = plugin.getSlowOperationTracer();
+        this.eventDispatcher = plugin.getTransactionEventDispatcher();
+        for (TransactionResult result : TransactionResult.values()) {
+            transferResults.put(result, metrics.counter("transfer_results", "result", result.name()));
+        }
+        this.cachedAccountHits = metrics.counter("cached_account_lookups", "result", "loaded");
+        this.cachedAccountMisses = metrics.counter("cached_account_lookups", "result", "not_loaded");
+    }
+
+    private <T> CompletableFuture<T> submit(String operation, Supplier<T> body) {
+        return metrics.timer(MetricsManager.Family.API, operation)
+                .timeAsync(() -> executor.supply(tracer.wrap(operation, body)));
+    }
+
+    private CompletableFuture<Void> run(String operation, Runnable body) {
+        return metrics.timer(MetricsManager.Family.API, operation)
+                .timeAsync(() -> executor.run(tracer.wrap(operation, body)));
     }
 
     @Override
     public CompletableFuture<BigDecimal> getBalance(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> dataManager.getBalance(playerUUID));
+        return submit("getBalance", () -> dataManager.getBalance(playerUUID).toBigDecimal());
     }
 
     @Override
     public CompletableFuture<Boolean> hasAccount(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> dataManager.hasAccount(playerUUID));
+        return submit("hasAccount", () -> dataManager.hasAccount(playerUUID));
     }
 
     @Override
     public CompletableFuture<Boolean> withdraw(UUID playerUUID, BigDecimal amount) {
-        return CompletableFuture.supplyAsync(() -> {
-            if (amount.compareTo(BigDecimal.ZERO) < 0) {
+        return submit("withdraw", () -> {
+            Money value = toValidAmount(amount);
+            if (value == null) {
                 return false;
             }
-            BigDecimal currentBalance = dataManager.getBalance(playerUUID);
-            if (currentBalance.compareTo(amount) >= 0) {
-                dataManager.setBalance(playerUUID, currentBalance.subtract(amount));
-                return true;
-            }
-            return false;
+            return accountLocks.withLock(playerUUID, () -> {
+                Money currentBalance = dataManager.getBalance(playerUUID);
+                if (currentBalance.isAtLeast(value)) {
+                    dataManager.setBalance(playerUUID, currentBalance.minus(value));
+                    return true;
+                }
+                return false;
+            });
         });
     }
 
     @Override
     public CompletableFuture<Boolean> deposit(UUID playerUUID, BigDecimal amount) {
-        return CompletableFuture.supplyAsync(() -> {
-            if (amount.compareTo(BigDecimal.ZERO) < 0) {
+        return submit("deposit", () -> {
+            Money value = toValidAmount(amount);
+            if (value == null) {
                 return false;
             }
-            BigDecimal currentBalance = dataManager.getBalance(playerUUID);
-            dataManager.setBalance(playerUUID, currentBalance.add(amount));
-            return true;
+            return accountLocks.withLock(playerUUID, () -> {
+                Money currentBalance = dataManager.getBalance(playerUUID);
+                dataManager.setBalance(playerUUID, currentBalance.plus(value));
+                return true;
+            });
         });
     }
 
     @Override
     public CompletableFuture<Void> setBalance(UUID playerUUID, BigDecimal amount) {
-        return CompletableFuture.runAsync(() -> {
-            if (amount.compareTo(BigDecimal.ZERO) >= 0) {
-                dataManager.setBalance(playerUUID, amount);
+        return run("setBalance", () -> {
+            Money value = toValidAmount(amount);
+            if (value != null) {
+                accountLocks.withLock(playerUUID, () -> {
+                    dataManager.setBalance(playerUUID, value);
+                    return null;
+                });
             }
         });
     }
 
     @Override
     public CompletableFuture<Boolean> isFrozen(UUID playerUUID) {
-        return CompletableFuture.supplyAsync(() -> dataManager.isFrozen(playerUUID));
+        return submit("isFrozen", () -> dataManager.isFrozen(playerUUID));
+    }
+
+    @Override
+    public AccountSnapshot getCachedAccount(UUID playerUUID) {
+        AccountSnapshot account = dataManager.getOnlineAccounts().get(playerUUID);
+        (account.isLoaded() ? cachedAccountHits : cachedAccountMisses).increment();
+        return account;
     }
 
     @Override
     public CompletableFuture<Void> setFrozen(UUID playerUUID, boolean frozen) {
-        return CompletableFuture.runAsync(() -> dataManager.setFrozen(playerUUID, frozen));
+        return run("setFrozen", () -> dataManager.setFrozen(playerUUID, frozen));
     }
 
     @Override
@@ -88,12 +149,12 @@ public class EconomyManager implements EconomyAPI {
 
     @Override
     public CompletableFuture<BigDecimal> getTotalServerBalance() {
-        return CompletableFuture.supplyAsync(dataManager::calculateTotalBalance);
+        return submit("getTotalServerBalance", () -> dataManager.calculateTotalBalance().toBigDecimal());
     }
 
     @Override
     public CompletableFuture<BigDecimal> getTotalCommission() {
-        return CompletableFuture.supplyAsync(dataManager::getTotalCommission);
+        return submit("getTotalCommission", () -> dataManager.getTotalCommission().toBigDecimal());
     }
 
     @Override
@@ -103,59 +164,271 @@ public class EconomyManager implements EconomyAPI {
 
     @Override
     public CompletableFuture<TransactionResult> transfer(UUID from, UUID to, BigDecimal amount) {
-        return CompletableFuture.supplyAsync(() -> {
-            PreTransactionEvent preEvent = new PreTransactionEvent(from, to, amount);
-            Bukkit.getPluginManager().callEvent(preEvent);
-            if (preEvent.isCancelled()) {
+        CompletableFuture<TransactionResult> future = submit("transfer", () -> {
+            Money value = toValidAmount(amount);
+            if (value == null) return TransactionResult.INVALID_AMOUNT;
+
+            if (!eventDispatcher.callPreTransaction(new PreTransactionEvent(from, to, amount))) {
                 return TransactionResult.CANCELLED_BY_EVENT;
             }
 
             if (from.equals(to)) return TransactionResult.CANNOT_PAY_SELF;
-            if (dataManager.isFrozen(from)) return TransactionResult.SENDER_FROZEN;
-            if (dataManager.isFrozen(to)) return TransactionResult.RECIPIENT_FROZEN;
 
             double commissionPercentage = plugin.getConfigManager().getCommissionPercentage();
-            BigDecimal commissionAmount = amount.multiply(BigDecimal.valueOf(commissionPercentage / 100.0)).setScale(2, RoundingMode.HALF_UP);
-            BigDecimal totalCost = amount.add(commissionAmount);
-            BigDecimal senderBalance = dataManager.getBalance(from);
+            Money commission = value.percent(commissionPercentage);
+            Money totalCost = value.plus(commission);
+
+            TransactionResult result = accountLocks.withLocks(from, to, () -> {
+                if (dataManager.isFrozen(from)) return TransactionResult.SENDER_FROZEN;
+                if (dataManager.isFrozen(to)) return TransactionResult.RECIPIENT_FROZEN;
+
+                Money senderBalance = dataManager.getBalance(from);
+                if (!senderBalance.isAtLeast(totalCost)) {
+                    return TransactionResult.INSUFFICIENT_FUNDS;
+                }
+
+                dataManager.setBalance(from, senderBalance.minus(totalCost));
+                Money recipientBalance = dataManager.getBalance(to);
+                dataManager.setBalance(to, recipientBalance.plus(value));
+                return TransactionResult.SUCCESS;
+            });
 
-            if (senderBalance.compareTo(totalCost) < 0) {
-                return TransactionResult.INSUFFICIENT_FUNDS;
+            if (result != TransactionResult.SUCCESS) {
+                return result;
             }
 
-            dataManager.setBalance(from, senderBalance.subtract(totalCost));
-            BigDecimal recipientBalance = dataManager.getBalance(to);
-            dataManager.setBalance(to, recipientBalance.add(amount));
-            addCommission(commissionAmount);
+            addCommission(commission);
+            BigDecimal commissionAmount = commission.toBigDecimal();
 
-            String fromName = Bukkit.getOfflinePlayer(from).getName();
-            String toName = Bukkit.getOfflinePlayer(to).getName();
+            String fromName = resolveName(from);
+            String toName = resolveName(to);
 
-            logTransaction(fromName, toName, amount, commissionAmount, totalCost);
+            try (OperationTrace.Span ignored = OperationTrace.span("transaction_log")) {
+                plugin.getTransactionLogger().log(LogRecord.payment(from, fromName, to, toName, value, commission));
+            }
 
-            dataManager.logTransaction(
-                    new TransactionRecord(
-                            fromName,
-                            toName,
-                            TransactionType.PAY,
-                            amount,
-                            commissionAmount
-                    )
-            );
+            try (OperationTrace.Span ignored = OperationTrace.span("journal")) {
+                dataManager.logTransaction(
+                        new TransactionRecord(
+                                from,
+                                fromName,
+                                to,
+                                toName,
+                                TransactionType.PAY,
+                                value.toBigDecimal(),
+                                commissionAmount
+                        )
+                );
+            }
 
-            PostTransactionEvent postEvent = new PostTransactionEvent(from, to, amount, commissionAmount, TransactionResult.SUCCESS);
-            Bukkit.getPluginManager().callEvent(postEvent);
+            eventDispatcher.postTransaction(from, to, value.toBigDecimal(), commissionAmount);
 
             return TransactionResult.SUCCESS;
         });
+        future.thenAccept(result -> transferResults.get(result).increment());
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<BatchResult<UUID>> depositAll(Map<UUID, BigDecimal> amounts) {
+        return submit("depositAll", () -> applyBalanceBatch(amounts, false));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult<UUID>> withdrawAll(Map<UUID, BigDecimal> amounts) {
+        return submit("withdrawAll", () -> applyBalanceBatch(amounts, true));
+    }
+
+    private BatchResult<UUID> applyBalanceBatch(Map<UUID, BigDecimal> amounts, boolean withdraw) {
+        Map<UUID, TransactionResult> results = new LinkedHashMap<>();
+        Map<UUID, Money> values = new LinkedHashMap<>();
+        boolean invalid = false;
+        for (Map.Entry<UUID, BigDecimal> entry : amounts.entrySet()) {
+            Money value = toValidAmount(entry.getValue());
+            results.put(entry.getKey(), value != null ? TransactionResult.SUCCESS : TransactionResult.INVALID_AMOUNT);
+            if (value == null) {
+                invalid = true;
+            } else {
+                values.put(entry.getKey(), value);
+            }
+        }
+        if (invalid) {
+            return abortBatch(results);
+        }
+
+        return accountLocks.withLocks(values.keySet(), () -> {
+            Map<UUID, Money> updated = new LinkedHashMap<>();
+            boolean failed = false;
+            for (Map.Entry<UUID, Money> entry : values.entrySet()) {
+                UUID uuid = entry.getKey();
+                if (!dataManager.hasAccount(uuid)) {
+                    results.put(uuid, TransactionResult.INVALID_RECIPIENT);
+                    failed = true;
+                    continue;
+                }
+                Money balance = dataManager.getBalance(uuid);
+                if (withdraw && !balance.isAtLeast(entry.getValue())) {
+                    results.put(uuid, TransactionResult.INSUFFICIENT_FUNDS);
+                    failed = true;
+                    continue;
+                }
+                try {
+                    updated.put(uuid, withdraw ? balance.minus(entry.getValue()) : balance.plus(entry.getValue()));
+                } catch (ArithmeticException e) {
+                    results.put(uuid, TransactionResult.INVALID_AMOUNT);
+                    failed = true;
+                }
+            }
+            if (failed) {
+                return abortBatch(results);
+            }
+
+            updated.forEach(dataManager::setBalance);
+            return new BatchResult<>(true, results);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<TransactionResult>> transferMany(List<Transfer> transfers) {
+        return submit("transferMany", () -> {
+            List<TransactionResult> results = new ArrayList<>(transfers.size());
+            List<Money> values = new ArrayList<>(transfers.size());
+            Set<UUID> accounts = new HashSet<>();
+            boolean failed = false;
+            for (Transfer transfer : transfers) {
+                Money value = toValidAmount(transfer.getAmount());
+                TransactionResult result = TransactionResult.SUCCESS;
+                if (value == null) {
+                    result = TransactionResult.INVALID_AMOUNT;
+                } else if (transfer.getFrom().equals(transfer.getTo())) {
+                    result = TransactionResult.CANNOT_PAY_SELF;
+                } else {
+                    if (!eventDispatcher.callPreTransaction(new PreTransactionEvent(transfer.getFrom(), transfer.getTo(), transfer.getAmount()))) {
+                        result = TransactionResult.CANCELLED_BY_EVENT;
+                    }
+                }
+                results.add(result);
+                failed |= result != TransactionResult.SUCCESS;
+                values.add(value);
+                accounts.add(transfer.getFrom());
+                accounts.add(transfer.getTo());
+            }
+            if (failed) {
+                return abortTransfers(results);
+            }
+
+            double commissionPercentage = plugin.getConfigManager().getCommissionPercentage();
+            List<Money> commissions = new ArrayList<>(transfers.size());
+            for (Money value : values) {
+                commissions.add(value.percent(commissionPercentage));
+            }
+
+            boolean applied = accountLocks.withLocks(accounts, () -> {
+                Map<UUID, Money> balances = new HashMap<>();
+                boolean rejected = false;
+                for (int i = 0; i < transfers.size(); i++) {
+                    Transfer transfer = transfers.get(i);
+                    TransactionResult result = TransactionResult.SUCCESS;
+                    if (!dataManager.hasAccount(transfer.getFrom())) {
+                        result = TransactionResult.INVALID_SENDER;
+                    } else if (!dataManager.hasAccount(transfer.getTo())) {
+                        result = TransactionResult.INVALID_RECIPIENT;
+                    } else if (dataManager.isFrozen(transfer.getFrom())) {
+                        result = TransactionResult.SENDER_FROZEN;
+                    } else if (dataManager.isFrozen(transfer.getTo())) {
+                        result = TransactionResult.RECIPIENT_FROZEN;
+                    } else {
+                        Money totalCost = values.get(i).plus(commissions.get(i));
+                        Money senderBalance = balances.computeIfAbsent(transfer.getFrom(), dataManager::getBalance);
+                        if (!senderBalance.isAtLeast(totalCost)) {
+                            result = TransactionResult.INSUFFICIENT_FUNDS;
+                        } else {
+                            balances.put(transfer.getFrom(), senderBalance.minus(totalCost));
+                            balances.put(transfer.getTo(), balances.computeIfAbsent(transfer.getTo(), dataManager::getBalance).plus(values.get(i)));
+                        }
+                    }
+                    if (result != TransactionResult.SUCCESS) {
+                        results.set(i, result);
+                        rejected = true;
+                    }
+                }
+                if (rejected) {
+                    return false;
+                }
+
+                balances.forEach(dataManager::setBalance);
+                return true;
+            });
+            if (!applied) {
+                return abortTransfers(results);
+            }
+
+            Money totalCommission = Money.ZERO;
+            for (Money commission : commissions) {
+                totalCommission = totalCommission.plus(commission);
+            }
+            addCommission(totalCommission);
+
+            Map<UUID, String> names = new HashMap<>();
+            List<TransactionRecord> records = new ArrayList<>(transfers.size());
+            for (int i = 0; i < transfers.size(); i++) {
+                Transfer transfer = transfers.get(i);
+                String fromName = names.computeIfAbsent(transfer.getFrom(), this::resolveName);
+                String toName = names.computeIfAbsent(transfer.getTo(), this::resolveName);
+                try (OperationTrace.Span ignored = OperationTrace.span("transaction_log")) {
+                    plugin.getTransactionLogger().log(LogRecord.payment(transfer.getFrom(), fromName, transfer.getTo(), toName, values.get(i), commissions.get(i)));
+                }
+                records.add(new TransactionRecord(transfer.getFrom(), fromName, transfer.getTo(), toName,
+                        TransactionType.PAY, values.get(i).toBigDecimal(), commissions.get(i).toBigDecimal()));
+            }
+            try (OperationTrace.Span ignored = OperationTrace.span("journal")) {
+                dataManager.logTransactions(records);
+            }
+
+            List<TransactionEventDispatcher.Completed> completed = new ArrayList<>(transfers.size());
+            for (int i = 0; i < transfers.size(); i++) {
+                Transfer transfer = transfers.get(i);
+                completed.add(new TransactionEventDispatcher.Completed(transfer.getFrom(), transfer.getTo(),
+                        values.get(i).toBigDecimal(), commissions.get(i).toBigDecimal()));
+            }
+            eventDispatcher.postTransactions(completed);
+            return Collections.unmodifiableList(results);
+        });
+    }
+
+    private static Money toValidAmount(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        try {
+            Money value = Money.of(amount);
+            return value.isNegative() ? null : value;
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private static <K> BatchResult<K> abortBatch(Map<K, TransactionResult> results) {
+        results.replaceAll((key, result) -> result == TransactionResult.SUCCESS ? TransactionResult.BATCH_ABORTED : result);
+        return new BatchResult<>(false, results);
+    }
+
+    private static List<TransactionResult> abortTransfers(List<TransactionResult> results) {
+        results.replaceAll(result -> result == TransactionResult.SUCCESS ? TransactionResult.BATCH_ABORTED : result);
+        return Collections.unmodifiableList(results);
     }
 
-    private void addCommission(BigDecimal amount) {
-        dataManager.addCommission(amount);
+    private String resolveName(UUID uuid) {
+        String name;
+        try (OperationTrace.Span ignored = OperationTrace.span("resolve_name")) {
+            name = nameCache.resolveName(uuid);
+        }
+        return name != null ? name : uuid.toString().substring(0, 8);
     }
 
-    private void logTransaction(String fromName, String toName, BigDecimal amount, BigDecimal commission, BigDecimal total) {
-        plugin.getTransactionLogger().log(String.format("[PAY] %s -> %s | Amount: %s | Commission: %s | Total: %s",
-                fromName, toName, format(amount), format(commission), format(total)));
+    private void addCommission(Money amount) {
+        if (!amount.isZero()) {
+            dataManager.addCommission(amount);
+        }
     }
 }
\ No newline at end of file
@@ -1,71 +1,78 @@
 package ru.corearchitect.coreeconomy.manager;
 
 import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
-import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitTask;
 import ru.corearchitect.coreeconomy.CoreEconomy;
 import ru.corearchitect.coreeconomy.model.LeaderboardEntry;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.util.BalanceRankIndex;
 
-import java.math.BigDecimal;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
 
 public class LeaderboardManager {
 
     private final CoreEconomy plugin;
-    private final List<LeaderboardEntry> topPlayers = new CopyOnWriteArrayList<>();
+    private final BalanceRankIndex index = new BalanceRankIndex();
+    private final BalanceChangeListener balanceListener = (uuid, balance) -> index.update(uuid, balance.getMinorUnits());
     private BukkitTask updateTask;
 
     public LeaderboardManager(CoreEconomy plugin) {
         this.plugin = plugin;
+        plugin.getDataManager().addBalanceListener(balanceListener);
     }
 
     public void startUpdateTask() {
-        long interval = plugin.getConfigManager().getLeaderboardUpdateInterval() * 20L * 60L;
-        this.updateTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                updateLeaderboard();
-            }
-        }.runTaskTimerAsynchronously(plugin, 20L * 10, interval);
+        MetricsManager.Timer timer = plugin.getMetricsManager().timer(MetricsManager.Family.TASK, "leaderboard_index");
+        this.updateTask = Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> timer.time(this::loadIndex));
     }
 
     public void cancelUpdateTask() {
         if (updateTask != null) {
             updateTask.cancel();
         }
+        plugin.getDataManager().removeBalanceListener(balanceListener);
     }
 
-    public void updateLeaderboard() {
-        int leaderboardSize = plugin.getConfigManager().getLeaderboardSize();
-        List<LeaderboardEntry> sortedList = plugin.getDataManager().getAllBalances().entrySet().stream()
-                .sorted(Comparator.comparing(entry -> entry.getValue(), Comparator.reverseOrder()))
-                .limit(leaderboardSize)
-                .map(entry -> {
-                    UUID uuid = entry.getKey();
-                    BigDecimal balance = entry.getValue();
-                    OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
-                    String name = player.getName() != null ? player.getName() : "Unknown";
-                    return new LeaderboardEntry(uuid, name, balance);
-                })
-                .collect(Collectors.toList());
-
-        topPlayers.clear();
-        topPlayers.addAll(sortedList);
+    private void loadIndex() {
+        long start = System.currentTimeMillis();
+        Map<UUID, Money> balances = plugin.getDataManager().getAllBalances();
+        balances.forEach((uuid, balance) -> index.putIfAbsent(uuid, balance.getMinorUnits()));
+        plugin.getLogger().info("Leaderboard index built for " + balances.size() + " accounts in " + (System.currentTimeMillis() - start) + " ms.");
     }
 
     public List<LeaderboardEntry> getTopPlayers() {
-        return topPlayers;
+        List<BalanceRankIndex.Entry> top = index.top(plugin.getConfigManager().getLeaderboardSize());
+        List<LeaderboardEntry> entries = new ArrayList<>(top.size());
+        for (BalanceRankIndex.Entry entry : top) {
+            entries.add(toLeaderboardEntry(entry));
+        }
+        return entries;
     }
 
     public LeaderboardEntry getEntry(int rank) {
-        if (rank > 0 && rank <= topPlayers.size()) {
-            return topPlayers.get(rank - 1);
+        if (rank < 1 || rank > plugin.getConfigManager().getLeaderboardSize()) {
+            return null;
+        }
+        BalanceRankIndex.Entry entry = index.getByRank(rank);
+        return entry != null ? toLeaderboardEntry(entry) : null;
+    }
+
+    public int getRank(UUID uuid) {
+        return index.rankOf(uuid);
+    }
+
+    public int getRankedCount() {
+        return index.size();
+    }
+
+    private LeaderboardEntry toLeaderboardEntry(BalanceRankIndex.Entry entry) {
+        String name = plugin.getNameCache().getName(entry.getUuid());
+        if (name == null) {
+            name = "Unknown";
         }
-        return null;
+        return new LeaderboardEntry(entry.getUuid(), name, Money.ofMinor(entry.getBalance()).toBigDecimal());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,348 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.storage.TransactionJournal;
+import ru.corearchitect.coreeconomy.util.LatencyHistogram;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public class MetricsManager {
+
+    private static final String PREFIX = "coreeconomy_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public enum Family {
+        API("api_operation_seconds", "operation", "Time from an EconomyAPI call to the completion of its future."),
+        STORAGE("storage_call_seconds", "call", "Time spent in storage provider calls."),
+        TASK("task_seconds", "task", "Duration of scheduled plugin tasks.");
+
+        private final String metric;
+        private final String label;
+        private final String help;
+
+        Family(String metric, String label, String help) {
+            this.metric = metric;
+            this.label = label;
+            this.help = help;
+        }
+
+        public String getKey() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final CoreEconomy plugin;
+    private final Map<Family, ConcurrentMap<String, Timer>> timers = new EnumMap<>(Family.class);
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+    private BukkitTask exportTask;
+
+    public MetricsManager(CoreEconomy plugin) {
+        this.plugin = plugin;
+        for (Family family : Family.values()) {
+            timers.put(family, new ConcurrentHashMap<>());
+        }
+    }
+
+    public void start() {
+        registerGauges();
+
+        ConfigManager configManager = plugin.getConfigManager();
+        if (!configManager.isMetricsExportEnabled()) {
+            return;
+        }
+        long interval = Math.max(1, configManager.getMetricsExportIntervalSeconds()) * 20L;
+        this.exportTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                export();
+            }
+        }.runTaskTimerAsynchronously(plugin, interval, interval);
+    }
+
+    public void stop() {
+        if (exportTask != null) {
+            exportTask.cancel();
+            exportTask = null;
+            export();
+        }
+    }
+
+    public Timer timer(Family family, String name) {
+        ConcurrentMap<String, Timer> byName = timers.get(family);
+        Timer timer = byName.get(name);
+        return timer != null ? timer : byName.computeIfAbsent(name, key -> new Timer(family, key));
+    }
+
+    public Counter counter(String metric, String label, String value) {
+        return counters.computeIfAbsent(metric + "{" + label + "=\"" + value + "\"}", key -> new Counter(metric, label, value));
+    }
+
+    public Collection<Timer> getTimers(Family family) {
+        return new TreeMap<>(timers.get(family)).values();
+    }
+
+    public Collection<Counter> getCounters() {
+        return Collections.unmodifiableCollection(counters.values());
+    }
+
+    public List<Gauge> getGauges() {
+        return Collections.unmodifiableList(gauges);
+    }
+
+    private void registerGauges() {
+        gauges.clear();
+        EconomyExecutor executor = plugin.getEconomyExecutor();
+        gauge("executor_queue_depth", "gauge", "Tasks waiting in the economy executor queue, always 0 on virtual threads.", executor::getQueueDepth);
+        gauge("executor_active_threads", "gauge", "Economy executor tasks currently running.", executor::getActiveCount);
+        gauge("executor_submitted_total", "counter", "Tasks submitted to the economy executor.", executor::getSubmittedCount);
+        gauge("executor_completed_total", "counter", "Tasks completed by the economy executor.", executor::getCompletedCount);
+        gauge("executor_rejected_total", "counter", "Tasks rejected by the economy executor.", executor::getRejectedCount);
+
+        TransactionJournal journal = plugin.getDataManager().getTransactionJournal();
+        gauge("journal_queue_depth", "gauge", "History records waiting to be written to storage.", journal::getQueueDepth);
+        gauge("journal_written_total", "counter", "History records written to storage.", journal::getWrittenCount);
+        gauge("journal_overflow_total", "counter", "History records written directly because the journal queue was full.", journal::getOverflowCount);
+
+        TransactionLogger logger = plugin.getTransactionLogger();
+        gauge("transaction_log_queue_depth", "gauge", "Transaction log records waiting for the writer thread.", logger::getQueueDepth);
+        gauge("transaction_log_written_total", "counter", "Transaction log records written to disk.", logger::getWrittenCount);
+        gauge("transaction_log_backpressure_total", "counter", "Times a caller waited for space in the transaction log buffer.", logger::getBackpressureCount);
+
+        NameCache nameCache = plugin.getNameCache();
+        gauge("name_cache_size", "gauge", "Entries in the player name cache.", nameCache::size);
+        gauge("name_cache_hits_total", "counter", "Player name cache hits.", nameCache::getHitCount);
+        gauge("name_cache_misses_total", "counter", "Player name cache misses.", nameCache::getMissCount);
+
+        ServerAggregates aggregates = plugin.getDataManager().getAggregates();
+        gauge("money_supply_minor", "gauge", "Sum of all account balances in minor currency units.", () -> aggregates.getMoneySupply().getMinorUnits());
+        gauge("commission_total_minor", "gauge", "Commission collected in minor currency units.", () -> aggregates.getTotalCommission().getMinorUnits());
+        gauge("accounts", "gauge", "Number of economy accounts.", aggregates::getAccountCount);
+        gauge("frozen_accounts", "gauge", "Number of frozen accounts.", aggregates::getFrozenAccountCount);
+
+        TransactionEventDispatcher dispatcher = plugin.getTransactionEventDispatcher();
+        gauge("post_event_queue_depth", "gauge", "Post-transaction events waiting for delivery.", dispatcher::getQueueDepth);
+
+        gauge("online_accounts", "gauge", "Accounts held in the online account view.", () -> plugin.getDataManager().getOnlineAccounts().size());
+    }
+
+    private void gauge(String name, String type, String help, LongSupplier value) {
+        gauges.add(new Gauge(name, type, help, value));
+    }
+
+    public synchronized void export() {
+        File target = new File(plugin.getDataFolder(), plugin.getConfigManager().getMetricsExportFile());
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+                writer.write(toPrometheus());
+            }
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write metrics to " + target.getName() + ": " + e.getMessage());
+            temp.delete();
+        }
+    }
+
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(8192);
+        for (Family family : Family.values()) {
+            Collection<Timer> familyTimers = getTimers(family);
+            if (familyTimers.isEmpty()) {
+                continue;
+            }
+            String metric = PREFIX + family.metric;
+            header(out, metric, "summary", family.help);
+            for (Timer timer : familyTimers) {
+                LatencyHistogram.Snapshot snapshot = timer.snapshot();
+                String label = family.label + "=\"" + timer.name + "\"";
+                for (double quantile : QUANTILES) {
+                    out.append(metric).append('{').append(label).append(",quantile=\"").append(quantile).append("\"} ")
+                            .append(seconds(snapshot.getValueAtPercentile(quantile * 100.0))).append('\n');
+                }
+                out.append(metric).append("_sum{").append(label).append("} ").append(seconds(snapshot.getSum())).append('\n');
+                out.append(metric).append("_count{").append(label).append("} ").append(snapshot.getCount()).append('\n');
+            }
+        }
+
+        String previous = null;
+        for (Counter counter : counters.values()) {
+            String metric = PREFIX + counter.metric + "_total";
+            if (!metric.equals(previous)) {
+                header(out, metric, "counter", null);
+                previous = metric;
+            }
+            out.append(metric).append('{').append(counter.label).append("=\"").append(counter.value).append("\"} ")
+                    .append(counter.adder.sum()).append('\n');
+        }
+
+        for (Gauge gauge : gauges) {
+            String metric = PREFIX + gauge.name;
+            header(out, metric, gauge.type, gauge.help);
+            out.append(metric).append(' ').append(gauge.read()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String metric, String type, String help) {
+        if (help != null) {
+            out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        }
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+
+    public static String formatDuration(long nanos) {
+        if (nanos < 1_000L) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000L) {
+            return String.format(Locale.ROOT, "%.1fµs", nanos / 1_000.0);
+        }
+        if (nanos < 1_000_000_000L) {
+            return String.format(Locale.ROOT, "%.2fms", nanos / 1_000_000.0);
+        }
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1_000_000_000.0);
+    }
+
+    public static final class Timer {
+        private final Family family;
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Timer(Family family, String name) {
+            this.family = family;
+            this.name = name;
+        }
+
+        public Family getFamily() {
+            return family;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram.Snapshot snapshot() {
+            return histogram.snapshot();
+        }
+
+        public void record(long nanos) {
+            histogram.record(nanos);
+        }
+
+        public void time(Runnable task) {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        public <T> T time(Supplier<T> call) {
+            long start = System.nanoTime();
+            try {
+                return call.get();
+            } finally {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        public <T> CompletableFuture<T> timeAsync(Supplier<CompletableFuture<T>> call) {
+            long start = System.nanoTime();
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (RuntimeException e) {
+                record(System.nanoTime() - start);
+                throw e;
+            }
+            future.whenComplete((result, error) -> record(System.nanoTime() - start));
+            return future;
+        }
+    }
+
+    public static final class Gauge {
+        private final String name;
+        private final String type;
+        private final String help;
+        private final LongSupplier value;
+
+        private Gauge(String name, String type, String help, LongSupplier value) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long read() {
+            return value.getAsLong();
+        }
+    }
+
+    public static final class Counter {
+        private final String metric;
+        private final String label;
+        private final String value;
+        private final LongAdder adder = new LongAdder();
+
+        private Counter(String metric, String label, String value) {
+            this.metric = metric;
+            this.label = label;
+            this.value = value;
+        }
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getCount() {
+            return adder.sum();
+        }
+    }
+}
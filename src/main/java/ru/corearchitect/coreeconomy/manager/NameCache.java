@@ -0,0 +1,203 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class NameCache {
+
+    private final DataManager dataManager;
+    private final EconomyExecutor executor;
+    private final int capacity;
+    private final Map<UUID, String> names;
+    private final Map<String, UUID> uuids;
+    private final Set<UUID> pendingNames = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingUuids = ConcurrentHashMap.newKeySet();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public NameCache(CoreEconomy plugin) {
+        this.dataManager = plugin.getDataManager();
+        this.executor = plugin.getEconomyExecutor();
+        this.capacity = Math.max(16, plugin.getConfigManager().getNameCacheSize());
+        this.names = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.uuids = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UUID> eldest) {
+                return size() > capacity;
+            }
+        };
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            remember(player.getUniqueId(), player.getName());
+        }
+    }
+
+    public void remember(UUID uuid, String name) {
+        if (uuid == null || name == null) {
+            return;
+        }
+        if (!name.equals(put(uuid, name))) {
+            executor.run(() -> dataManager.saveName(uuid, name));
+        }
+    }
+
+    public String getName(UUID uuid) {
+        String name = getCachedName(uuid);
+        if (name != null) {
+            return name;
+        }
+        if (pendingNames.add(uuid)) {
+            executor.run(() -> loadName(uuid)).whenComplete((ignored, error) -> pendingNames.remove(uuid));
+        }
+        return null;
+    }
+
+    public UUID getUuid(String name) {
+        UUID uuid = getCachedUuid(name);
+        if (uuid != null) {
+            return uuid;
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        if (pendingUuids.add(key)) {
+            executor.run(() -> loadUuid(name)).whenComplete((ignored, error) -> pendingUuids.remove(key));
+        }
+        return null;
+    }
+
+    public String resolveName(UUID uuid) {
+        String name = getCachedName(uuid);
+        return name != null ? name : loadName(uuid);
+    }
+
+    public UUID resolveUuid(String name) {
+        UUID uuid = getCachedUuid(name);
+        return uuid != null ? uuid : loadUuid(name);
+    }
+
+    public CompletableFuture<String> lookupName(UUID uuid) {
+        String name = getCachedName(uuid);
+        if (name != null) {
+            return CompletableFuture.completedFuture(name);
+        }
+        return executor.supply(() -> loadName(uuid));
+    }
+
+    public CompletableFuture<UUID> lookupUuid(String name) {
+        UUID uuid = getCachedUuid(name);
+        if (uuid != null) {
+            return CompletableFuture.completedFuture(uuid);
+        }
+        return executor.supply(() -> loadUuid(name));
+    }
+
+    public OfflinePlayer findPlayer(String name) {
+        Player online = Bukkit.getPlayerExact(name);
+        if (online != null) {
+            remember(online.getUniqueId(), online.getName());
+            return online;
+        }
+        UUID uuid = getCachedUuid(name);
+        if (uuid != null) {
+            return Bukkit.getOfflinePlayer(uuid);
+        }
+        OfflinePlayer cached = Bukkit.getOfflinePlayerIfCached(name);
+        if (cached != null) {
+            remember(cached.getUniqueId(), cached.getName() != null ? cached.getName() : name);
+        }
+        return cached;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    private String getCachedName(UUID uuid) {
+        String name;
+        synchronized (this) {
+            name = names.get(uuid);
+        }
+        if (name == null) {
+            Player online = Bukkit.getPlayer(uuid);
+            if (online != null) {
+                name = online.getName();
+                put(uuid, name);
+            }
+        }
+        if (name != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return name;
+    }
+
+    private UUID getCachedUuid(String name) {
+        UUID uuid;
+        synchronized (this) {
+            uuid = uuids.get(name.toLowerCase(Locale.ROOT));
+        }
+        if (uuid == null) {
+            Player online = Bukkit.getPlayerExact(name);
+            if (online != null) {
+                uuid = online.getUniqueId();
+                put(uuid, online.getName());
+            }
+        }
+        if (uuid != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return uuid;
+    }
+
+    private String loadName(UUID uuid) {
+        String name = dataManager.loadName(uuid);
+        if (name != null) {
+            put(uuid, name);
+        }
+        return name;
+    }
+
+    private UUID loadUuid(String name) {
+        UUID uuid = dataManager.loadUuid(name);
+        if (uuid != null) {
+            String stored = dataManager.loadName(uuid);
+            put(uuid, stored != null ? stored : name);
+        }
+        return uuid;
+    }
+
+    private synchronized String put(UUID uuid, String name) {
+        String previous = names.put(uuid, name);
+        if (previous != null && !previous.equalsIgnoreCase(name)) {
+            uuids.remove(previous.toLowerCase(Locale.ROOT));
+        }
+        uuids.put(name.toLowerCase(Locale.ROOT), uuid);
+        return previous;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import ru.corearchitect.coreeconomy.model.AccountSnapshot;
+import ru.corearchitect.coreeconomy.model.Money;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class OnlineAccountView implements BalanceChangeListener {
+
+    private final Map<UUID, AccountSnapshot> accounts = new ConcurrentHashMap<>();
+
+    public void load(UUID uuid, Function<UUID, AccountSnapshot> loader) {
+        accounts.compute(uuid, (key, previous) -> loader.apply(key));
+    }
+
+    public void unload(UUID uuid) {
+        accounts.remove(uuid);
+    }
+
+    public AccountSnapshot get(UUID uuid) {
+        AccountSnapshot snapshot = accounts.get(uuid);
+        return snapshot != null ? snapshot : AccountSnapshot.NOT_LOADED;
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    @Override
+    public void onBalanceChange(UUID uuid, Money newBalance) {
+        accounts.computeIfPresent(uuid, (key, snapshot) -> snapshot.withBalance(newBalance));
+    }
+
+    @Override
+    public void onFrozenChange(UUID uuid, boolean frozen) {
+        accounts.computeIfPresent(uuid, (key, snapshot) -> snapshot.withFrozen(frozen));
+    }
+}
@@ -5,34 +5,64 @@ import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.scoreboard.*;
 import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.util.LineTemplate;
 import ru.corearchitect.coreeconomy.util.NumberFormatter;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ScoreboardManager {
 
+    private static final String OBJECTIVE_NAME = "CoreEcoSidebar";
+    private static final String TEAM_PREFIX = "coreeco_line_";
+    private static final int MAX_LINES = 15;
+
     private final CoreEconomy plugin;
-    private final Set<UUID> scoreboardEnabledPlayers = new HashSet<>();
-    private BukkitTask updateTask;
+    private final Set<UUID> scoreboardEnabledPlayers = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Sidebar> sidebars = new HashMap<>();
+    private final Map<UUID, Money> pendingBalances = new ConcurrentHashMap<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final BalanceChangeListener balanceListener = this::onBalanceChange;
+    private final MetricsManager.Timer drainTimer;
+    private volatile List<LineTemplate> templates;
+    private volatile Component title;
 
     public ScoreboardManager(CoreEconomy plugin) {
         this.plugin = plugin;
+        this.drainTimer = plugin.getMetricsManager().timer(MetricsManager.Family.TASK, "scoreboard_render");
+        compileTemplates();
+    }
+
+    public void start() {
+        plugin.getDataManager().addBalanceListener(balanceListener);
     }
 
-    public void startUpdateTask() {
-        this.updateTask = Bukkit.getScheduler().runTaskTimer(plugin, this::updateAllScoreboards, 0L, 40L);
+    public void stop() {
+        plugin.getDataManager().removeBalanceListener(balanceListener);
+        pendingBalances.clear();
     }
 
-    public void cancelUpdateTask() {
-        if (this.updateTask != null) {
-            this.updateTask.cancel();
+    public void reloadTemplates() {
+        compileTemplates();
+        for (Map.Entry<UUID, Sidebar> entry : sidebars.entrySet()) {
+            Player player = Bukkit.getPlayer(entry.getKey());
+            if (player == null) {
+                continue;
+            }
+            Sidebar sidebar = entry.getValue();
+            sidebar.objective.displayName(title);
+            sidebar.layout(templates.size());
+            render(player, sidebar, sidebar.balance, true);
         }
     }
 
@@ -41,78 +71,158 @@ public class ScoreboardManager {
         boolean isCurrentlyEnabled = plugin.getDataManager().getScoreboardState(uuid);
 
         if (isCurrentlyEnabled) {
-            scoreboardEnabledPlayers.remove(uuid);
+            disable(uuid);
             player.setScoreboard(Bukkit.getScoreboardManager().getMainScoreboard());
             plugin.getDataManager().setScoreboardState(uuid, false);
             player.sendMessage(plugin.getConfigManager().getPrefixedMessage("scoreboard.toggle-off"));
         } else {
             scoreboardEnabledPlayers.add(uuid);
             plugin.getDataManager().setScoreboardState(uuid, true);
-            updateScoreboard(player);
+            requestRender(uuid);
             player.sendMessage(plugin.getConfigManager().getPrefixedMessage("scoreboard.toggle-on"));
         }
     }
 
-    public void playerJoined(Player player) {
-        if (plugin.getDataManager().getScoreboardState(player.getUniqueId())) {
+    public void playerJoined(Player player, boolean scoreboardEnabled, Money balance) {
+        if (scoreboardEnabled) {
             scoreboardEnabledPlayers.add(player.getUniqueId());
-            updateScoreboard(player);
+            show(player, balance);
+            requestRender(player.getUniqueId());
         }
     }
 
     public void playerQuit(Player player) {
-        scoreboardEnabledPlayers.remove(player.getUniqueId());
+        disable(player.getUniqueId());
     }
 
-    private void updateAllScoreboards() {
-        for (UUID uuid : scoreboardEnabledPlayers) {
-            Player player = Bukkit.getPlayer(uuid);
-            if (player != null && player.isOnline()) {
-                updateScoreboard(player);
-            }
+    private void disable(UUID uuid) {
+        scoreboardEnabledPlayers.remove(uuid);
+        pendingBalances.remove(uuid);
+        sidebars.remove(uuid);
+    }
+
+    private void compileTemplates() {
+        List<String> lines = plugin.getConfigManager().getScoreboardLines();
+        List<LineTemplate> compiled = new ArrayList<>(Math.min(lines.size(), MAX_LINES));
+        for (int i = 0; i < lines.size() && i < MAX_LINES; i++) {
+            compiled.add(LineTemplate.compile(lines.get(i)));
         }
+        this.templates = compiled;
+        this.title = LegacyComponentSerializer.legacyAmpersand().deserialize(plugin.getConfigManager().getScoreboardTitle());
+    }
+
+    private void requestRender(UUID uuid) {
+        plugin.getEconomyExecutor().supply(() -> plugin.getDataManager().getBalance(uuid))
+                .thenAccept(balance -> {
+                    if (scoreboardEnabledPlayers.contains(uuid)) {
+                        pendingBalances.putIfAbsent(uuid, balance);
+                        scheduleDrain();
+                    }
+                });
     }
 
-    private void updateScoreboard(Player player) {
-        Scoreboard board = player.getScoreboard();
-        if (board == Bukkit.getScoreboardManager().getMainScoreboard() || board.getObjective("CoreEcoSidebar") == null) {
-            board = Bukkit.getScoreboardManager().getNewScoreboard();
+    private void onBalanceChange(UUID uuid, Money balance) {
+        if (!scoreboardEnabledPlayers.contains(uuid)) {
+            return;
         }
+        pendingBalances.put(uuid, balance);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (plugin.isEnabled() && drainScheduled.compareAndSet(false, true)) {
+            Bukkit.getScheduler().runTask(plugin, () -> drainTimer.time(this::drainPending));
+        }
+    }
+
+    private void drainPending() {
+        drainScheduled.set(false);
+        Iterator<Map.Entry<UUID, Money>> iterator = pendingBalances.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Money> entry = iterator.next();
+            iterator.remove();
+            Player player = Bukkit.getPlayer(entry.getKey());
+            if (player != null && scoreboardEnabledPlayers.contains(entry.getKey())) {
+                show(player, entry.getValue());
+            }
+        }
+    }
 
-        Objective objective = board.getObjective("CoreEcoSidebar");
-        if (objective == null) {
-            Component title = LegacyComponentSerializer.legacyAmpersand().deserialize(plugin.getConfigManager().getScoreboardTitle());
-            objective = board.registerNewObjective("CoreEcoSidebar", "dummy", title);
+    private void show(Player player, Money balance) {
+        Sidebar sidebar = sidebars.get(player.getUniqueId());
+        boolean created = sidebar == null;
+        if (created) {
+            Scoreboard board = Bukkit.getScoreboardManager().getNewScoreboard();
+            Objective objective = board.registerNewObjective(OBJECTIVE_NAME, "dummy", title);
             objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+            sidebar = new Sidebar(board, objective);
+            sidebar.layout(templates.size());
+            sidebars.put(player.getUniqueId(), sidebar);
         }
 
-        final Scoreboard finalBoard = board;
-        final Objective finalObjective = objective;
+        render(player, sidebar, balance, created);
 
-        plugin.getEconomyManager().getBalance(player.getUniqueId()).thenAcceptAsync(balance -> {
-            String balanceText = NumberFormatter.format(balance);
-            String symbol = plugin.getConfigManager().getCurrencySymbol();
-            List<String> lines = plugin.getConfigManager().getScoreboardLines();
+        if (created) {
+            player.setScoreboard(sidebar.board);
+        }
+    }
 
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                for (String entry : finalBoard.getEntries()) {
-                    finalBoard.resetScores(entry);
-                }
+    private void render(Player player, Sidebar sidebar, Money balance, boolean force) {
+        if (!force && balance.equals(sidebar.balance)) {
+            return;
+        }
+        sidebar.balance = balance;
+
+        String[] values = {player.getName(), NumberFormatter.format(balance), plugin.getConfigManager().getCurrencySymbol()};
+        List<LineTemplate> lines = templates;
+        for (int i = 0; i < lines.size() && i < sidebar.teams.size(); i++) {
+            LineTemplate template = lines.get(i);
+            if (!force && !template.usesBalance()) {
+                continue;
+            }
+            String text = template.render(values);
+            if (!text.equals(sidebar.rendered[i])) {
+                sidebar.teams.get(i).prefix(LegacyComponentSerializer.legacySection().deserialize(text));
+                sidebar.rendered[i] = text;
+            }
+        }
+    }
 
-                int score = lines.size();
-                for (int i = 0; i < lines.size(); i++) {
-                    String line = lines.get(i)
-                            .replace("{player}", player.getName())
-                            .replace("{balance}", balanceText)
-                            .replace("{symbol}", symbol);
+    private static String entryFor(int line) {
+        return ChatColor.values()[line].toString() + ChatColor.RESET;
+    }
 
-                    String uniqueEntry = line + String.join("", Collections.nCopies(i, ChatColor.RESET.toString()));
+    private static final class Sidebar {
+        final Scoreboard board;
+        final Objective objective;
+        final List<Team> teams = new ArrayList<>();
+        String[] rendered = new String[0];
+        Money balance = Money.ZERO;
 
-                    finalObjective.getScore(uniqueEntry).setScore(score--);
-                }
+        Sidebar(Scoreboard board, Objective objective) {
+            this.board = board;
+            this.objective = objective;
+        }
 
-                player.setScoreboard(finalBoard);
-            });
-        });
+        void layout(int lineCount) {
+            while (teams.size() > lineCount) {
+                int line = teams.size() - 1;
+                board.resetScores(entryFor(line));
+                teams.remove(line).unregister();
+            }
+            while (teams.size() < lineCount) {
+                int line = teams.size();
+                Team team = board.getTeam(TEAM_PREFIX + line);
+                if (team == null) {
+                    team = board.registerNewTeam(TEAM_PREFIX + line);
+                }
+                team.addEntry(entryFor(line));
+                teams.add(team);
+            }
+            for (int line = 0; line < lineCount; line++) {
+                objective.getScore(entryFor(line)).setScore(lineCount - line);
+            }
+            rendered = new String[lineCount];
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,224 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.storage.AccountBatch;
+import ru.corearchitect.coreeconomy.storage.AccountRecord;
+import ru.corearchitect.coreeconomy.storage.StorageProvider;
+import ru.corearchitect.coreeconomy.util.StripedLock;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ServerAggregates {
+
+    private static final int RECOUNT_CHUNK_SIZE = 1000;
+
+    private final CoreEconomy plugin;
+    private final DataManager dataManager;
+    private final LongAdder moneySupply = new LongAdder();
+    private final LongAdder commission = new LongAdder();
+    private final LongAdder accounts = new LongAdder();
+    private final LongAdder frozenAccounts = new LongAdder();
+    private final Object commissionLock = new Object();
+    private final AtomicBoolean recountRunning = new AtomicBoolean();
+    private final MetricsManager.Counter driftCorrections;
+    private final AtomicLong scanClock = new AtomicLong();
+    private volatile Map<UUID, ScanDelta> scanDeltas;
+    private volatile boolean ready;
+    private volatile boolean verified;
+    private BukkitTask recountTask;
+
+    public ServerAggregates(CoreEconomy plugin, DataManager dataManager) {
+        this.plugin = plugin;
+        this.dataManager = dataManager;
+        this.driftCorrections = plugin.getMetricsManager().counter("aggregate_drift_corrections", "source", "recount");
+    }
+
+    public void start() {
+        long interval = Math.max(1, plugin.getConfigManager().getAggregatesRecountIntervalMinutes()) * 20L * 60L;
+        this.recountTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                plugin.getMetricsManager().timer(MetricsManager.Family.TASK, "aggregates_recount").time(ServerAggregates.this::recount);
+            }
+        }.runTaskTimerAsynchronously(plugin, 1L, interval);
+    }
+
+    public void stop() {
+        if (recountTask != null) {
+            recountTask.cancel();
+            recountTask = null;
+        }
+    }
+
+    void onAccountCreated(UUID uuid, Money balance) {
+        accounts.increment();
+        moneySupply.add(balance.getMinorUnits());
+        recordScanDelta(uuid, balance.getMinorUnits(), 1, 0);
+    }
+
+    void onBalanceChange(UUID uuid, Money previous, Money balance) {
+        long delta = balance.getMinorUnits() - previous.getMinorUnits();
+        moneySupply.add(delta);
+        recordScanDelta(uuid, delta, 0, 0);
+    }
+
+    void onFrozenChange(UUID uuid, boolean previous, boolean frozen) {
+        if (previous != frozen) {
+            frozenAccounts.add(frozen ? 1 : -1);
+            recordScanDelta(uuid, 0, 0, frozen ? 1 : -1);
+        }
+    }
+
+    void addCommission(StorageProvider storage, Money amount) {
+        synchronized (commissionLock) {
+            storage.addCommission(amount);
+            commission.add(amount.getMinorUnits());
+        }
+    }
+
+    private void recordScanDelta(UUID uuid, long supply, long created, long frozen) {
+        Map<UUID, ScanDelta> deltas = scanDeltas;
+        if (deltas != null) {
+            ScanDelta delta = deltas.computeIfAbsent(uuid, key -> new ScanDelta());
+            delta.supply += supply;
+            delta.accounts += created;
+            delta.frozen += frozen;
+            delta.lastWrite = scanClock.incrementAndGet();
+        }
+    }
+
+    void invalidate() {
+        verified = false;
+        if (plugin.isEnabled()) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, this::recount);
+        }
+    }
+
+    public void recount() {
+        if (!recountRunning.compareAndSet(false, true)) {
+            return;
+        }
+        StorageMigrator migrator = dataManager.getMigrator();
+        if (migrator != null && migrator.isRunning()) {
+            recountRunning.set(false);
+            return;
+        }
+        StripedLock locks = dataManager.getAccountLocks();
+        Map<UUID, ScanDelta> deltas = new ConcurrentHashMap<>();
+        try {
+            StorageProvider storage = dataManager.getStorageProvider();
+            long[] expected = locks.withAllLocks(() -> {
+                scanDeltas = deltas;
+                return new long[]{moneySupply.sum(), accounts.sum(), frozenAccounts.sum()};
+            });
+
+            long[] counted = new long[3];
+            long cursor = AccountBatch.START;
+            while (cursor != AccountBatch.END) {
+                long readStart = scanClock.incrementAndGet();
+                AccountBatch batch = storage.exportAccounts(cursor, RECOUNT_CHUNK_SIZE);
+                for (AccountRecord record : batch.getRecords()) {
+                    UUID uuid = record.getUuid();
+                    locks.withLock(uuid, () -> {
+                        ScanDelta delta = deltas.remove(uuid);
+                        if (delta == null || delta.lastWrite < readStart) {
+                            count(counted, record.getBalance(), record.isFrozen());
+                        } else if (storage.hasAccount(uuid)) {
+                            count(counted, storage.getBalance(uuid), storage.isFrozen(uuid));
+                        }
+                        if (delta != null) {
+                            expected[0] += delta.supply;
+                            expected[1] += delta.accounts;
+                            expected[2] += delta.frozen;
+                        }
+                        return null;
+                    });
+                }
+                cursor = batch.isLast() ? AccountBatch.END : batch.getNextCursor();
+            }
+            scanDeltas = null;
+
+            long fee;
+            long countedCommission;
+            synchronized (commissionLock) {
+                fee = commission.sum();
+                countedCommission = storage.getTotalCommission().getMinorUnits();
+            }
+
+            boolean drifted = expected[0] != counted[0] || expected[1] != counted[1] || expected[2] != counted[2]
+                    || fee != countedCommission;
+            if (drifted && verified) {
+                driftCorrections.increment();
+                plugin.getLogger().warning("Running economy totals drifted from storage and were corrected: supply "
+                        + Money.ofMinor(expected[0]) + " -> " + Money.ofMinor(counted[0])
+                        + ", commission " + Money.ofMinor(fee) + " -> " + Money.ofMinor(countedCommission)
+                        + ", accounts " + expected[1] + " -> " + counted[1]
+                        + ", frozen " + expected[2] + " -> " + counted[2] + ".");
+            }
+            moneySupply.add(counted[0] - expected[0]);
+            accounts.add(counted[1] - expected[1]);
+            frozenAccounts.add(counted[2] - expected[2]);
+            commission.add(countedCommission - fee);
+            verified = true;
+            ready = true;
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Failed to recount economy totals: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            scanDeltas = null;
+            recountRunning.set(false);
+        }
+    }
+
+    private static void count(long[] counted, Money balance, boolean frozen) {
+        counted[0] = Math.addExact(counted[0], balance.getMinorUnits());
+        counted[1]++;
+        if (frozen) {
+            counted[2]++;
+        }
+    }
+
+    public boolean isRecounting() {
+        return recountRunning.get();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isVerified() {
+        return verified;
+    }
+
+    public Money getMoneySupply() {
+        return Money.ofMinor(moneySupply.sum());
+    }
+
+    public Money getTotalCommission() {
+        return Money.ofMinor(commission.sum());
+    }
+
+    public long getAccountCount() {
+        return accounts.sum();
+    }
+
+    public long getFrozenAccountCount() {
+        return frozenAccounts.sum();
+    }
+
+    private static final class ScanDelta {
+        private long supply;
+        private long accounts;
+        private long frozen;
+        private long lastWrite;
+    }
+}
@@ -0,0 +1,201 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.util.OperationTrace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class SlowOperationTracer {
+
+    private final CoreEconomy plugin;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private ThreadPoolExecutor writer;
+    private volatile long thresholdNanos;
+
+    public SlowOperationTracer(CoreEconomy plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        reload();
+    }
+
+    public synchronized void reload() {
+        ConfigManager configManager = plugin.getConfigManager();
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, configManager.getSlowTraceThresholdMillis()));
+        boolean enabled = configManager.isSlowTraceEnabled();
+        if (enabled && writer == null) {
+            this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(256), runnable -> {
+                Thread thread = new Thread(runnable, "CoreEconomy-SlowTrace");
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, executor) -> dropped.incrementAndGet());
+            plugin.getLogger().info("Slow operation tracing is enabled (threshold " + configManager.getSlowTraceThresholdMillis()
+                    + " ms, file " + configManager.getSlowTraceFile() + ").");
+        }
+        OperationTrace.setEnabled(enabled);
+    }
+
+    public synchronized void stop() {
+        OperationTrace.setEnabled(false);
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Slow operation trace writer did not finish in time.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    public <T> Supplier<T> wrap(String operation, Supplier<T> body) {
+        if (!OperationTrace.isEnabled()) {
+            return body;
+        }
+        long queuedAt = System.nanoTime();
+        return () -> trace(operation, queuedAt, body);
+    }
+
+    public Runnable wrap(String operation, Runnable body) {
+        if (!OperationTrace.isEnabled()) {
+            return body;
+        }
+        long queuedAt = System.nanoTime();
+        return () -> trace(operation, queuedAt, () -> {
+            body.run();
+            return null;
+        });
+    }
+
+    private <T> T trace(String operation, long queuedAt, Supplier<T> body) {
+        OperationTrace trace = OperationTrace.begin(operation, queuedAt);
+        if (trace == null) {
+            try (OperationTrace.Span ignored = OperationTrace.span(operation)) {
+                return body.get();
+            }
+        }
+        try {
+            return body.get();
+        } finally {
+            trace.end();
+            if (trace.getTotalNanos() >= thresholdNanos) {
+                submit(trace);
+            }
+        }
+    }
+
+    private synchronized void submit(OperationTrace trace) {
+        if (writer == null || writer.isShutdown()) {
+            dropped.incrementAndGet();
+            return;
+        }
+        writer.execute(() -> write(trace));
+    }
+
+    private void write(OperationTrace trace) {
+        ConfigManager configManager = plugin.getConfigManager();
+        File file = new File(plugin.getDataFolder(), configManager.getSlowTraceFile());
+        String text = format(trace);
+        try {
+            rotate(file, configManager.getSlowTraceMaxFileSizeKb() * 1024L, configManager.getSlowTraceMaxFiles());
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+                out.write(text);
+            }
+            written.incrementAndGet();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not write slow operation trace to " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void rotate(File file, long maxSize, int maxFiles) throws IOException {
+        if (maxSize <= 0 || file.length() < maxSize) {
+            return;
+        }
+        if (maxFiles <= 1) {
+            if (!file.delete()) {
+                throw new IOException("Failed to delete " + file.getName());
+            }
+            return;
+        }
+        File oldest = new File(file.getParentFile(), file.getName() + "." + (maxFiles - 1));
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Failed to delete " + oldest.getName());
+        }
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            File source = new File(file.getParentFile(), file.getName() + "." + i);
+            if (source.exists() && !source.renameTo(new File(file.getParentFile(), file.getName() + "." + (i + 1)))) {
+                throw new IOException("Failed to rotate " + source.getName());
+            }
+        }
+        if (!file.renameTo(new File(file.getParentFile(), file.getName() + ".1"))) {
+            throw new IOException("Failed to rotate " + file.getName());
+        }
+    }
+
+    private String format(OperationTrace trace) {
+        StringBuilder out = new StringBuilder(1024);
+        out.append(dateFormat.format(new Date(trace.getStartedAtMillis())))
+                .append(' ').append(trace.getOperation())
+                .append(" total=").append(MetricsManager.formatDuration(trace.getTotalNanos()))
+                .append(" queued=").append(MetricsManager.formatDuration(trace.getQueueWaitNanos()))
+                .append(" thread=").append(trace.getThreadName());
+        if (trace.getDroppedSpans() > 0) {
+            out.append(" dropped_spans=").append(trace.getDroppedSpans());
+        }
+        out.append('\n');
+        append(out, trace.getRoot(), 1);
+        out.append('\n');
+        return out.toString();
+    }
+
+    private void append(StringBuilder out, OperationTrace.Span span, int depth) {
+        indent(out, depth);
+        out.append(span.getName())
+                .append(' ').append(MetricsManager.formatDuration(span.getDurationNanos()))
+                .append(" @+").append(MetricsManager.formatDuration(span.getOffsetNanos()))
+                .append('\n');
+        for (String note : span.getNotes()) {
+            indent(out, depth + 1);
+            out.append("| ").append(note).append('\n');
+        }
+        if (span.getDroppedNotes() > 0) {
+            indent(out, depth + 1);
+            out.append("| ... ").append(span.getDroppedNotes()).append(" more\n");
+        }
+        for (OperationTrace.Span child : span.getChildren()) {
+            append(out, child, depth + 1);
+        }
+    }
+
+    private static void indent(StringBuilder out, int depth) {
+        for (int i = 0; i < depth; i++) {
+            out.append("  ");
+        }
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
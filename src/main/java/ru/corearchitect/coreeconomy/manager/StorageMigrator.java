@@ -0,0 +1,245 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.TransactionRecord;
+import ru.corearchitect.coreeconomy.storage.AccountBatch;
+import ru.corearchitect.coreeconomy.storage.MirroringStorageProvider;
+import ru.corearchitect.coreeconomy.storage.StorageProvider;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StorageMigrator {
+
+    public enum Stage {
+        PREPARING, ACCOUNTS, HISTORY, SWITCHING, COMPLETED, FAILED
+    }
+
+    private final CoreEconomy plugin;
+    private final DataManager dataManager;
+    private final StorageProvider source;
+    private final String sourceType;
+    private final String targetType;
+    private final CommandSender requester;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final Thread thread;
+    private final AtomicLong copiedAccounts = new AtomicLong();
+    private final AtomicLong copiedTransactions = new AtomicLong();
+    private volatile int totalAccounts;
+    private volatile Stage stage = Stage.PREPARING;
+    private volatile boolean cancelled;
+    private long lastTransactionId;
+
+    StorageMigrator(CoreEconomy plugin, DataManager dataManager, StorageProvider source, String sourceType, String targetType, CommandSender requester) {
+        this.plugin = plugin;
+        this.dataManager = dataManager;
+        this.source = source;
+        this.sourceType = sourceType;
+        this.targetType = targetType;
+        this.requester = requester;
+        this.chunkSize = Math.max(1, plugin.getConfigManager().getMigrationChunkSize());
+        this.pauseMillis = Math.max(0, plugin.getConfigManager().getMigrationPauseMillis());
+        this.thread = new Thread(this::run, "CoreEconomy-Migrator");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void cancel() {
+        cancelled = true;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return stage != Stage.COMPLETED && stage != Stage.FAILED;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public String getSourceType() {
+        return sourceType;
+    }
+
+    public String getTargetType() {
+        return targetType;
+    }
+
+    public long getCopiedAccounts() {
+        return copiedAccounts.get();
+    }
+
+    public int getTotalAccounts() {
+        return totalAccounts;
+    }
+
+    public long getCopiedTransactions() {
+        return copiedTransactions.get();
+    }
+
+    private void run() {
+        long start = System.currentTimeMillis();
+        StorageProvider target;
+        int existing;
+        try {
+            target = dataManager.createStorageProvider(targetType);
+            existing = target.countAccounts();
+            totalAccounts = source.countAccounts();
+        } catch (RuntimeException e) {
+            fail(e);
+            return;
+        }
+
+        if (existing > 0) {
+            target.close();
+            stage = Stage.FAILED;
+            notify(format("admin.migration-target-not-empty").replace("{count}", String.valueOf(existing)));
+            return;
+        }
+
+        MirroringStorageProvider mirror = new MirroringStorageProvider(source, target);
+        dataManager.swapStorageProvider(mirror);
+        plugin.getLogger().info("Migrating " + totalAccounts + " accounts from " + sourceType + " to " + targetType + ", new changes are written to both.");
+
+        boolean copyHistory = targetType.equals("SQLITE");
+        if (!copyHistory) {
+            plugin.getLogger().warning(targetType + " storage does not keep transaction history, it will not be migrated.");
+            notify(format("admin.migration-history-skipped"));
+        }
+
+        try {
+            mirror.syncCommission();
+            stage = Stage.ACCOUNTS;
+            copyAccounts(mirror, target);
+            if (copyHistory) {
+                stage = Stage.HISTORY;
+                while (copyTransactions(target)) {
+                    checkState(mirror);
+                }
+            }
+            stage = Stage.SWITCHING;
+            mirror.finish(target, () -> {
+                while (copyHistory && copyTransactions(target)) {
+                    // Drain the history written since the last chunk while writers are paused.
+                }
+                checkState(mirror);
+            });
+        } catch (RuntimeException e) {
+            mirror.finish(source, null);
+            dataManager.swapStorageProvider(source);
+            target.close();
+            fail(e);
+            return;
+        }
+
+        dataManager.swapStorageProvider(target);
+        try {
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                target.loadAccount(player.getUniqueId());
+            }
+            target.saveData();
+            dataManager.completeMigration(source, sourceType, targetType);
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Switched to " + targetType + ", but cleanup of " + sourceType + " failed. Set data-storage.type to " + targetType + " manually.");
+            e.printStackTrace();
+        }
+        stage = Stage.COMPLETED;
+
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - start);
+        plugin.getLogger().info("Migration from " + sourceType + " to " + targetType + " finished in " + seconds + " s.");
+        notify(format("admin.migration-completed").replace("{seconds}", String.valueOf(seconds)));
+    }
+
+    private void copyAccounts(MirroringStorageProvider mirror, StorageProvider target) {
+        int nextReport = 10;
+        long cursor = AccountBatch.START;
+        while (true) {
+            checkState(mirror);
+            AccountBatch batch = source.exportAccounts(cursor, chunkSize);
+            target.importAccounts(batch.getRecords(), false);
+            long copied = copiedAccounts.addAndGet(batch.getRecords().size());
+
+            int percent = totalAccounts > 0 ? (int) Math.min(100, copied * 100 / totalAccounts) : 100;
+            if (percent >= nextReport && !batch.isLast()) {
+                nextReport = (percent / 10 + 1) * 10;
+                plugin.getLogger().info("Migration " + sourceType + " -> " + targetType + ": " + copied + "/" + totalAccounts + " accounts (" + percent + "%).");
+                notify(format("admin.migration-progress").replace("{percent}", String.valueOf(percent)));
+            }
+            if (batch.isLast()) {
+                return;
+            }
+            cursor = batch.getNextCursor();
+            pause();
+        }
+    }
+
+    private boolean copyTransactions(StorageProvider target) {
+        List<TransactionRecord> records = source.exportTransactions(lastTransactionId, chunkSize);
+        if (records.isEmpty()) {
+            return false;
+        }
+        target.logTransactions(records);
+        lastTransactionId = records.get(records.size() - 1).getId();
+        copiedTransactions.addAndGet(records.size());
+        return true;
+    }
+
+    private void checkState(MirroringStorageProvider mirror) {
+        if (cancelled) {
+            throw new CancellationException("plugin is shutting down");
+        }
+        RuntimeException failure = mirror.getMirrorFailure();
+        if (failure != null) {
+            throw new IllegalStateException("write to " + targetType + " failed", failure);
+        }
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        }
+    }
+
+    private void fail(RuntimeException e) {
+        stage = Stage.FAILED;
+        plugin.getLogger().severe("Migration from " + sourceType + " to " + targetType + " failed, staying on " + sourceType + ".");
+        e.printStackTrace();
+        String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        notify(format("admin.migration-failed").replace("{reason}", reason));
+    }
+
+    public String format(String path) {
+        return plugin.getConfigManager().getPrefixedMessage(path)
+                .replace("{from}", sourceType)
+                .replace("{to}", targetType)
+                .replace("{stage}", stage.name())
+                .replace("{accounts}", String.valueOf(copiedAccounts.get()))
+                .replace("{total}", String.valueOf(totalAccounts))
+                .replace("{transactions}", String.valueOf(copiedTransactions.get()));
+    }
+
+    private void notify(String message) {
+        if (requester != null) {
+            requester.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.RegisteredListener;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.event.PostTransactionBatchEvent;
+import ru.corearchitect.coreeconomy.event.PostTransactionEvent;
+import ru.corearchitect.coreeconomy.event.PreTransactionEvent;
+import ru.corearchitect.coreeconomy.model.TransactionResult;
+import ru.corearchitect.coreeconomy.util.OperationTrace;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TransactionEventDispatcher {
+
+    private static final long BUDGET_WARNING_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    public enum Mode {
+        SYNC, MAIN_THREAD, ASYNC;
+
+        public static Mode fromConfig(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return MAIN_THREAD;
+            }
+        }
+    }
+
+    private final CoreEconomy plugin;
+    private final Queue<Completed> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicLong lastBudgetWarning = new AtomicLong(System.nanoTime() - BUDGET_WARNING_INTERVAL_NANOS);
+    private final MetricsManager.Timer drainTimer;
+    private final MetricsManager.Counter preBudgetExceeded;
+    private volatile Mode mode;
+    private volatile long preBudgetNanos;
+    private volatile int maxBatchSize;
+
+    public TransactionEventDispatcher(CoreEconomy plugin) {
+        this.plugin = plugin;
+        this.drainTimer = plugin.getMetricsManager().timer(MetricsManager.Family.TASK, "post_event_delivery");
+        this.preBudgetExceeded = plugin.getMetricsManager().counter("event_budget_exceeded", "event", "PreTransactionEvent");
+        reload();
+    }
+
+    public void reload() {
+        ConfigManager configManager = plugin.getConfigManager();
+        this.mode = Mode.fromConfig(configManager.getPostTransactionEventMode());
+        this.preBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, configManager.getPreTransactionEventBudgetMillis()));
+        this.maxBatchSize = Math.max(1, configManager.getPostTransactionEventBatchSize());
+    }
+
+    public void stop() {
+        while (!pending.isEmpty()) {
+            deliverPending();
+        }
+    }
+
+    public boolean callPreTransaction(PreTransactionEvent event) {
+        long start = System.nanoTime();
+        call("pre_event", event);
+        long elapsed = System.nanoTime() - start;
+        if (preBudgetNanos > 0 && elapsed > preBudgetNanos) {
+            onBudgetExceeded(event, elapsed);
+        }
+        return !event.isCancelled();
+    }
+
+    public void postTransaction(UUID from, UUID to, BigDecimal amount, BigDecimal commission) {
+        postTransactions(Collections.singletonList(new Completed(from, to, amount, commission)));
+    }
+
+    public void postTransactions(List<Completed> transactions) {
+        if (transactions.isEmpty() || !hasListeners(PostTransactionEvent.getHandlerList())
+                && !hasListeners(PostTransactionBatchEvent.getHandlerList())) {
+            return;
+        }
+        if (mode == Mode.SYNC || !plugin.isEnabled()) {
+            deliver(transactions);
+            return;
+        }
+        pending.addAll(transactions);
+        pendingCount.addAndGet(transactions.size());
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (!plugin.isEnabled()) {
+            drainScheduled.set(false);
+            return;
+        }
+        if (mode == Mode.ASYNC) {
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, this::drain);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, this::drain);
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        drainTimer.time(this::deliverPending);
+        if (!pending.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+
+    private synchronized void deliverPending() {
+        List<Completed> batch = new ArrayList<>(Math.min(maxBatchSize, Math.max(1, pendingCount.get())));
+        Completed next;
+        while (batch.size() < maxBatchSize && (next = pending.poll()) != null) {
+            batch.add(next);
+        }
+        pendingCount.addAndGet(-batch.size());
+        deliver(batch);
+    }
+
+    private void deliver(List<Completed> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        boolean single = hasListeners(PostTransactionEvent.getHandlerList());
+        boolean batched = hasListeners(PostTransactionBatchEvent.getHandlerList());
+        if (!single && !batched) {
+            return;
+        }
+        try {
+            List<PostTransactionEvent> events = new ArrayList<>(batch.size());
+            for (Completed completed : batch) {
+                PostTransactionEvent event = new PostTransactionEvent(completed.from, completed.to,
+                        completed.amount, completed.commission, TransactionResult.SUCCESS);
+                events.add(event);
+                if (single) {
+                    call("post_event", event);
+                }
+            }
+            if (batched) {
+                call("post_event_batch", new PostTransactionBatchEvent(events));
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().severe("Failed to deliver " + batch.size() + " post-transaction event(s): " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private void call(String span, Event event) {
+        try (OperationTrace.Span ignored = OperationTrace.span(span)) {
+            if (OperationTrace.isActive()) {
+                Set<String> plugins = listenerPlugins(event.getHandlers());
+                OperationTrace.annotate("listeners: " + (plugins.isEmpty() ? "none" : String.join(" ", plugins)));
+            }
+            Bukkit.getPluginManager().callEvent(event);
+        }
+    }
+
+    private void onBudgetExceeded(PreTransactionEvent event, long elapsed) {
+        preBudgetExceeded.increment();
+        long now = System.nanoTime();
+        long last = lastBudgetWarning.get();
+        if (now - last < BUDGET_WARNING_INTERVAL_NANOS || !lastBudgetWarning.compareAndSet(last, now)) {
+            return;
+        }
+        Set<String> plugins = listenerPlugins(event.getHandlers());
+        plugin.getLogger().warning("PreTransactionEvent listeners took " + MetricsManager.formatDuration(elapsed)
+                + " (budget " + MetricsManager.formatDuration(preBudgetNanos) + "), delaying payments. Listening plugins: "
+                + (plugins.isEmpty() ? "none" : String.join(", ", plugins)));
+    }
+
+    private static boolean hasListeners(HandlerList handlers) {
+        return handlers.getRegisteredListeners().length > 0;
+    }
+
+    private static Set<String> listenerPlugins(HandlerList handlers) {
+        Set<String> plugins = new LinkedHashSet<>();
+        for (RegisteredListener listener : handlers.getRegisteredListeners()) {
+            plugins.add(listener.getPlugin().getName());
+        }
+        return plugins;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getQueueDepth() {
+        return pendingCount.get();
+    }
+
+    public static final class Completed {
+        private final UUID from;
+        private final UUID to;
+        private final BigDecimal amount;
+        private final BigDecimal commission;
+
+        public Completed(UUID from, UUID to, BigDecimal amount, BigDecimal commission) {
+            this.from = from;
+            this.to = to;
+            this.amount = amount;
+            this.commission = commission;
+        }
+    }
+}
@@ -1,46 +1,299 @@
 package ru.corearchitect.coreeconomy.manager;
 
-import org.bukkit.Bukkit;
 import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.LogRecord;
+import ru.corearchitect.coreeconomy.util.LogRecordCodec;
+import ru.corearchitect.coreeconomy.util.MpscRingBuffer;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
 
 public class TransactionLogger {
 
+    private static final String FILE_PREFIX = "transactions";
+    private static final int DRAIN_LIMIT = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
     private final CoreEconomy plugin;
-    private final File logFile;
-    private PrintWriter writer;
+    private final File logsFolder;
+    private final File activeFile;
+    private final MpscRingBuffer<LogRecord> buffer;
+    private final LogRecordCodec codec;
+    private final long flushIntervalNanos;
+    private final long maxFileBytes;
+    private final boolean rollDaily;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Thread writerThread;
+    private final ThreadPoolExecutor compressor;
+    private final AtomicBoolean writerIdle = new AtomicBoolean();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong backpressured = new AtomicLong();
+    private volatile boolean running = true;
+
+    private OutputStream writer;
+    private long fileBytes;
+    private LocalDate fileDay;
+    private long cachedSecond = Long.MIN_VALUE;
+    private LocalDate cachedDay;
+    private boolean dirty;
+    private boolean failing;
 
     public TransactionLogger(CoreEconomy plugin) {
         this.plugin = plugin;
-        File logsFolder = new File(plugin.getDataFolder(), "logs");
+        ConfigManager configManager = plugin.getConfigManager();
+        this.logsFolder = new File(plugin.getDataFolder(), "logs");
         if (!logsFolder.exists()) {
             logsFolder.mkdirs();
         }
-        this.logFile = new File(logsFolder, "transactions.log");
+        this.codec = new LogRecordCodec(LogRecordCodec.Format.fromConfig(configManager.getTransactionLogFormat()), zone);
+        this.activeFile = new File(logsFolder, FILE_PREFIX + "." + codec.getFormat().getExtension());
+        this.buffer = new MpscRingBuffer<>(Math.max(2, configManager.getTransactionLogBufferSize()));
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10, configManager.getTransactionLogFlushIntervalMillis()));
+        this.maxFileBytes = Math.max(0, configManager.getTransactionLogMaxFileSizeMegabytes()) * 1024L * 1024L;
+        this.rollDaily = configManager.isTransactionLogDailyRolling();
+        this.compressor = configManager.isTransactionLogCompressRolled() ? new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "CoreEconomy-TransactionLogCompressor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }) : null;
+
+        synchronized (this) {
+            openActiveFile();
+        }
+        this.writerThread = new Thread(this::runWriter, "CoreEconomy-TransactionLog");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public void log(LogRecord entry) {
+        if (!buffer.offer(entry)) {
+            long count = backpressured.incrementAndGet();
+            if (count == 1 || count % 1000 == 0) {
+                plugin.getLogger().warning("Transaction log buffer is full (" + count + " times so far), waiting for the writer.");
+            }
+            while (!buffer.offer(entry)) {
+                if (!running) {
+                    writePendingAndClose();
+                    continue;
+                }
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(BACKPRESSURE_PARK_NANOS);
+            }
+        }
+
+        if (!running) {
+            writePendingAndClose();
+        } else if (writerIdle.get()) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private void runWriter() {
+        long lastFlush = System.nanoTime();
+        while (running) {
+            int drained = writePending();
+            if (drained == DRAIN_LIMIT && System.nanoTime() - lastFlush < flushIntervalNanos) {
+                continue;
+            }
+            if (drained > 0 || dirty) {
+                flush();
+                lastFlush = System.nanoTime();
+            }
+            if (drained == 0) {
+                writerIdle.set(true);
+                if (running && buffer.isEmpty()) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+                writerIdle.set(false);
+            }
+        }
+    }
+
+    private synchronized int writePending() {
+        return buffer.drain(this::write, DRAIN_LIMIT);
+    }
+
+    private synchronized void writePendingAndClose() {
+        if (writer == null) {
+            openActiveFile();
+        }
+        while (writePending() > 0) {
+            flush();
+        }
+        flush();
+        closeActiveFile();
+    }
+
+    private void write(LogRecord entry) {
+        long second = Math.floorDiv(entry.getTimestamp(), 1000L);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedDay = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getTimestamp()), zone).toLocalDate();
+        }
+
         try {
-            this.writer = new PrintWriter(new FileWriter(logFile, true), true);
+            if (writer == null) {
+                openActiveFile();
+            } else if ((rollDaily && !cachedDay.equals(fileDay)) || (maxFileBytes > 0 && fileBytes >= maxFileBytes)) {
+                roll();
+            }
+            if (writer == null) {
+                return;
+            }
+            fileBytes += codec.encode(entry, writer);
+            dirty = true;
+            written.incrementAndGet();
+            failing = false;
         } catch (IOException e) {
-            plugin.getLogger().severe("Could not initialize TransactionLogger!");
+            reportFailure("Could not write to the transaction log!", e);
+        }
+    }
+
+    private synchronized void flush() {
+        if (writer == null || !dirty) {
+            return;
+        }
+        try {
+            writer.flush();
+            dirty = false;
+        } catch (IOException e) {
+            reportFailure("Could not flush the transaction log!", e);
+        }
+    }
+
+    private void roll() throws IOException {
+        LocalDate day = fileDay;
+        writer.flush();
+        dirty = false;
+        closeActiveFile();
+
+        String base = FILE_PREFIX + "-" + day;
+        String extension = "." + codec.getFormat().getExtension();
+        File rolled = new File(logsFolder, base + extension);
+        for (int index = 1; rolled.exists() || new File(logsFolder, rolled.getName() + ".gz").exists(); index++) {
+            rolled = new File(logsFolder, base + "." + index + extension);
+        }
+        boolean renamed = activeFile.renameTo(rolled);
+        if (!renamed) {
+            plugin.getLogger().warning("Could not roll " + activeFile.getName() + " to " + rolled.getName()
+                    + ", continuing in the same file until the next roll.");
+        } else if (compressor != null && !compressor.isShutdown()) {
+            File toCompress = rolled;
+            compressor.execute(() -> compress(toCompress));
+        }
+        openActiveFile();
+        if (!renamed && writer != null) {
+            fileBytes = 0;
+            fileDay = cachedDay;
+        }
+    }
+
+    private void compress(File file) {
+        File compressed = new File(file.getParentFile(), file.getName() + ".gz");
+        byte[] chunk = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed), BUFFER_SIZE)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not compress rolled transaction log " + file.getName() + ", keeping it uncompressed.");
             e.printStackTrace();
+            compressed.delete();
+            return;
         }
+        file.delete();
     }
 
-    public void log(String message) {
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            String timestamp = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-            writer.println("[" + timestamp + "] " + message);
-        });
+    private void openActiveFile() {
+        try {
+            boolean existing = activeFile.length() > 0;
+            this.writer = new BufferedOutputStream(new FileOutputStream(activeFile, true), BUFFER_SIZE);
+            this.fileBytes = activeFile.length();
+            if (!existing) {
+                byte[] header = codec.header();
+                writer.write(header);
+                fileBytes += header.length;
+            }
+            this.fileDay = existing
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(activeFile.lastModified()), zone).toLocalDate()
+                    : LocalDate.now(zone);
+        } catch (IOException e) {
+            this.writer = null;
+            reportFailure("Could not initialize TransactionLogger!", e);
+        }
     }
 
-    public void close() {
-        if (writer != null) {
+    private void closeActiveFile() {
+        if (writer == null) {
+            return;
+        }
+        try {
             writer.close();
+        } catch (IOException e) {
+            reportFailure("Could not close the transaction log!", e);
+        }
+        writer = null;
+    }
+
+    private void reportFailure(String message, IOException e) {
+        if (!failing) {
+            plugin.getLogger().severe(message);
+            e.printStackTrace();
+            failing = true;
+        }
+    }
+
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getBackpressureCount() {
+        return backpressured.get();
+    }
+
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writePendingAndClose();
+        if (compressor != null) {
+            compressor.shutdown();
+            try {
+                if (!compressor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    plugin.getLogger().warning("Rolled transaction logs are still being compressed, leaving the rest uncompressed.");
+                    compressor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package ru.corearchitect.coreeconomy.model;
+
+import ru.corearchitect.coreeconomy.util.NumberFormatter;
+
+import java.math.BigDecimal;
+
+public final class AccountSnapshot {
+
+    public static final AccountSnapshot NOT_LOADED = new AccountSnapshot(false, Money.ZERO, false);
+
+    private final boolean loaded;
+    private final Money balance;
+    private final BigDecimal balanceDecimal;
+    private final boolean frozen;
+    private String formattedBalance;
+
+    private AccountSnapshot(boolean loaded, Money balance, boolean frozen) {
+        this.loaded = loaded;
+        this.balance = balance;
+        this.balanceDecimal = balance.toBigDecimal();
+        this.frozen = frozen;
+    }
+
+    public static AccountSnapshot of(Money balance, boolean frozen) {
+        return new AccountSnapshot(true, balance, frozen);
+    }
+
+    public AccountSnapshot withBalance(Money newBalance) {
+        return new AccountSnapshot(true, newBalance, frozen);
+    }
+
+    public AccountSnapshot withFrozen(boolean newFrozen) {
+        return newFrozen == frozen ? this : new AccountSnapshot(true, balance, newFrozen);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public BigDecimal getBalance() {
+        return balanceDecimal;
+    }
+
+    public long getBalanceMinorUnits() {
+        return balance.getMinorUnits();
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public String getFormattedBalance() {
+        String formatted = formattedBalance;
+        if (formatted == null) {
+            formatted = NumberFormatter.format(balance);
+            formattedBalance = formatted;
+        }
+        return formatted;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.corearchitect.coreeconomy.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class BatchResult<K> {
+    private final boolean applied;
+    private final Map<K, TransactionResult> results;
+
+    public BatchResult(boolean applied, Map<K, TransactionResult> results) {
+        this.applied = applied;
+        this.results = Collections.unmodifiableMap(results);
+    }
+
+    public boolean isApplied() {
+        return applied;
+    }
+
+    public Map<K, TransactionResult> getResults() {
+        return results;
+    }
+
+    public TransactionResult getResult(K key) {
+        return results.get(key);
+    }
+
+    public Map<K, TransactionResult> getFailures() {
+        Map<K, TransactionResult> failures = new LinkedHashMap<>();
+        for (Map.Entry<K, TransactionResult> entry : results.entrySet()) {
+            if (entry.getValue() != TransactionResult.SUCCESS && entry.getValue() != TransactionResult.BATCH_ABORTED) {
+                failures.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return failures;
+    }
+}
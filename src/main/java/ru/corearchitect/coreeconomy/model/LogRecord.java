@@ -0,0 +1,82 @@
+package ru.corearchitect.coreeconomy.model;
+
+import java.util.UUID;
+
+public final class LogRecord {
+
+    public static final String PAY = "PAY";
+
+    private final long timestamp;
+    private final String type;
+    private final UUID initiatorUuid;
+    private final String initiatorName;
+    private final UUID targetUuid;
+    private final String targetName;
+    private final long amount;
+    private final long commission;
+    private final String details;
+
+    public LogRecord(long timestamp, String type, UUID initiatorUuid, String initiatorName, UUID targetUuid, String targetName, long amount, long commission, String details) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.initiatorUuid = initiatorUuid;
+        this.initiatorName = initiatorName;
+        this.targetUuid = targetUuid;
+        this.targetName = targetName;
+        this.amount = amount;
+        this.commission = commission;
+        this.details = details;
+    }
+
+    public static LogRecord payment(UUID from, String fromName, UUID to, String toName, Money amount, Money commission) {
+        return new LogRecord(System.currentTimeMillis(), PAY, from, fromName, to, toName, amount.getMinorUnits(), commission.getMinorUnits(), null);
+    }
+
+    public static LogRecord admin(String type, UUID adminUuid, String adminName, UUID targetUuid, String targetName, Money amount) {
+        return new LogRecord(System.currentTimeMillis(), type, adminUuid, adminName, targetUuid, targetName, amount.getMinorUnits(), 0L, null);
+    }
+
+    public static LogRecord admin(String type, UUID adminUuid, String adminName, UUID targetUuid, String targetName) {
+        return new LogRecord(System.currentTimeMillis(), type, adminUuid, adminName, targetUuid, targetName, 0L, 0L, null);
+    }
+
+    public static LogRecord note(String type, String adminName, String details) {
+        return new LogRecord(System.currentTimeMillis(), type, null, adminName, null, null, 0L, 0L, details);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public UUID getInitiatorUuid() {
+        return initiatorUuid;
+    }
+
+    public String getInitiatorName() {
+        return initiatorName;
+    }
+
+    public UUID getTargetUuid() {
+        return targetUuid;
+    }
+
+    public String getTargetName() {
+        return targetName;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getCommission() {
+        return commission;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+}
@@ -2,41 +2,55 @@ package ru.corearchitect.coreeconomy.model;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 public class TransactionRecord {
+    private final long id;
     private final LocalDateTime timestamp;
+    private final UUID initiatorUuid;
     private final String initiatorName;
+    private final UUID targetUuid;
     private final String targetName;
     private final TransactionType transactionType;
     private final BigDecimal amount;
     private final BigDecimal commission;
 
-    public TransactionRecord(String initiatorName, String targetName, TransactionType transactionType, BigDecimal amount, BigDecimal commission) {
-        this.timestamp = LocalDateTime.now();
-        this.initiatorName = initiatorName;
-        this.targetName = targetName;
-        this.transactionType = transactionType;
-        this.amount = amount;
-        this.commission = commission;
+    public TransactionRecord(UUID initiatorUuid, String initiatorName, UUID targetUuid, String targetName, TransactionType transactionType, BigDecimal amount, BigDecimal commission) {
+        this(0L, LocalDateTime.now(), initiatorUuid, initiatorName, targetUuid, targetName, transactionType, amount, commission);
     }
 
-    public TransactionRecord(LocalDateTime timestamp, String initiatorName, String targetName, TransactionType transactionType, BigDecimal amount, BigDecimal commission) {
+    public TransactionRecord(long id, LocalDateTime timestamp, UUID initiatorUuid, String initiatorName, UUID targetUuid, String targetName, TransactionType transactionType, BigDecimal amount, BigDecimal commission) {
+        this.id = id;
         this.timestamp = timestamp;
+        this.initiatorUuid = initiatorUuid;
         this.initiatorName = initiatorName;
+        this.targetUuid = targetUuid;
         this.targetName = targetName;
         this.transactionType = transactionType;
         this.amount = amount;
         this.commission = commission;
     }
 
+    public long getId() {
+        return id;
+    }
+
     public LocalDateTime getTimestamp() {
         return timestamp;
     }
 
+    public UUID getInitiatorUuid() {
+        return initiatorUuid;
+    }
+
     public String getInitiatorName() {
         return initiatorName;
     }
 
+    public UUID getTargetUuid() {
+        return targetUuid;
+    }
+
     public String getTargetName() {
         return targetName;
     }
@@ -52,4 +66,4 @@ public class TransactionRecord {
     public BigDecimal getCommission() {
         return commission;
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,9 @@ public enum TransactionResult {
     RECIPIENT_FROZEN,
     CANNOT_PAY_SELF,
     INVALID_RECIPIENT,
+    INVALID_SENDER,
     CANCELLED_BY_EVENT,
+    INVALID_AMOUNT,
+    BATCH_ABORTED,
     ERROR
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package ru.corearchitect.coreeconomy.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public final class Transfer {
+    private final UUID from;
+    private final UUID to;
+    private final BigDecimal amount;
+
+    public Transfer(UUID from, UUID to, BigDecimal amount) {
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+    }
+
+    public UUID getFrom() {
+        return from;
+    }
+
+    public UUID getTo() {
+        return to;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import java.util.List;
+
+public final class AccountBatch {
+
+    public static final long START = 0L;
+    public static final long END = -1L;
+
+    private final List<AccountRecord> records;
+    private final long nextCursor;
+
+    public AccountBatch(List<AccountRecord> records, long nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<AccountRecord> getRecords() {
+        return records;
+    }
+
+    public long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isLast() {
+        return nextCursor == END;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class AccountCache {
+
+    private final Map<UUID, CachedAccount> accounts = new ConcurrentHashMap<>();
+    private final Function<UUID, CachedAccount> loader;
+    private final long evictAfterMillis;
+
+    public AccountCache(Function<UUID, CachedAccount> loader, long evictAfterMillis) {
+        this.loader = loader;
+        this.evictAfterMillis = evictAfterMillis;
+    }
+
+    public CachedAccount get(UUID uuid) {
+        CachedAccount account = accounts.get(uuid);
+        if (account == null) {
+            account = accounts.computeIfAbsent(uuid, loader);
+        }
+        if (account != null) {
+            account.touch();
+        }
+        return account;
+    }
+
+    public CachedAccount getIfCached(UUID uuid) {
+        return accounts.get(uuid);
+    }
+
+    public void put(UUID uuid, CachedAccount account) {
+        accounts.putIfAbsent(uuid, account);
+    }
+
+    public void setOnline(UUID uuid, boolean online) {
+        CachedAccount account = online ? get(uuid) : accounts.get(uuid);
+        if (account != null) {
+            account.setOnline(online);
+        }
+    }
+
+    public Map<UUID, CachedAccount.Snapshot> collectDirty() {
+        Map<UUID, CachedAccount.Snapshot> dirty = new ConcurrentHashMap<>();
+        accounts.forEach((uuid, account) -> {
+            if (account.isDirty()) {
+                CachedAccount.Snapshot snapshot = account.takeSnapshot();
+                if (snapshot != null) {
+                    dirty.put(uuid, snapshot);
+                }
+            }
+        });
+        return dirty;
+    }
+
+    public void restoreDirty(Iterable<UUID> uuids) {
+        for (UUID uuid : uuids) {
+            CachedAccount account = accounts.get(uuid);
+            if (account != null) {
+                account.markDirty();
+            }
+        }
+    }
+
+    public List<UUID> evictExpired() {
+        long deadline = System.currentTimeMillis() - evictAfterMillis;
+        List<UUID> evicted = new ArrayList<>();
+        accounts.forEach((uuid, account) -> {
+            if (account.getLastAccess() < deadline && account.tryEvict()) {
+                accounts.remove(uuid, account);
+                evicted.add(uuid);
+            }
+        });
+        return evicted;
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+}
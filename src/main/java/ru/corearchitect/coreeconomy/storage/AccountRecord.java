@@ -0,0 +1,42 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import ru.corearchitect.coreeconomy.model.Money;
+
+import java.util.UUID;
+
+public final class AccountRecord {
+
+    private final UUID uuid;
+    private final Money balance;
+    private final boolean frozen;
+    private final boolean scoreboardEnabled;
+    private final String name;
+
+    public AccountRecord(UUID uuid, Money balance, boolean frozen, boolean scoreboardEnabled, String name) {
+        this.uuid = uuid;
+        this.balance = balance;
+        this.frozen = frozen;
+        this.scoreboardEnabled = scoreboardEnabled;
+        this.name = name;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public Money getBalance() {
+        return balance;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public boolean isScoreboardEnabled() {
+        return scoreboardEnabled;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
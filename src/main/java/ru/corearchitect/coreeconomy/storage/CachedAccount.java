@@ -0,0 +1,113 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import ru.corearchitect.coreeconomy.model.Money;
+
+public class CachedAccount {
+
+    private volatile Money balance;
+    private volatile boolean frozen;
+    private volatile boolean scoreboardEnabled;
+    private volatile boolean dirty;
+    private volatile boolean evicted;
+    private volatile boolean online;
+    private volatile long lastAccess;
+
+    public CachedAccount(Money balance, boolean frozen, boolean scoreboardEnabled) {
+        this.balance = balance;
+        this.frozen = frozen;
+        this.scoreboardEnabled = scoreboardEnabled;
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    public Money getBalance() {
+        return balance;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public boolean isScoreboardEnabled() {
+        return scoreboardEnabled;
+    }
+
+    synchronized boolean setBalance(Money balance) {
+        if (evicted) {
+            return false;
+        }
+        this.balance = balance;
+        this.dirty = true;
+        return true;
+    }
+
+    synchronized boolean setFrozen(boolean frozen) {
+        if (evicted) {
+            return false;
+        }
+        this.frozen = frozen;
+        this.dirty = true;
+        return true;
+    }
+
+    synchronized boolean setScoreboardEnabled(boolean scoreboardEnabled) {
+        if (evicted) {
+            return false;
+        }
+        this.scoreboardEnabled = scoreboardEnabled;
+        this.dirty = true;
+        return true;
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    synchronized Snapshot takeSnapshot() {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        return new Snapshot(balance, frozen, scoreboardEnabled);
+    }
+
+    synchronized void markDirty() {
+        dirty = true;
+    }
+
+    synchronized boolean tryEvict() {
+        if (dirty || online) {
+            return false;
+        }
+        evicted = true;
+        return true;
+    }
+
+    boolean isOnline() {
+        return online;
+    }
+
+    void setOnline(boolean online) {
+        this.online = online;
+        touch();
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    void touch() {
+        this.lastAccess = System.currentTimeMillis();
+    }
+
+    static final class Snapshot {
+        final Money balance;
+        final boolean frozen;
+        final boolean scoreboardEnabled;
+
+        Snapshot(Money balance, boolean frozen, boolean scoreboardEnabled) {
+            this.balance = balance;
+            this.frozen = frozen;
+            this.scoreboardEnabled = scoreboardEnabled;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import ru.corearchitect.coreeconomy.manager.MetricsManager;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.model.TransactionRecord;
+import ru.corearchitect.coreeconomy.util.OperationTrace;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public class InstrumentedStorageProvider implements StorageProvider {
+
+    private final StorageProvider delegate;
+    private final MetricsManager metrics;
+
+    public InstrumentedStorageProvider(StorageProvider delegate, MetricsManager metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    private MetricsManager.Timer timer(String call) {
+        return metrics.timer(MetricsManager.Family.STORAGE, call);
+    }
+
+    private void time(String call, Runnable task) {
+        try (OperationTrace.Span ignored = OperationTrace.span("storage.", call)) {
+            timer(call).time(task);
+        }
+    }
+
+    private <T> T time(String call, Supplier<T> task) {
+        try (OperationTrace.Span ignored = OperationTrace.span("storage.", call)) {
+            return timer(call).time(task);
+        }
+    }
+
+    @Override
+    public void createAccount(UUID uuid) {
+        time("createAccount", () -> delegate.createAccount(uuid));
+    }
+
+    @Override
+    public void loadAccount(UUID uuid) {
+        time("loadAccount", () -> delegate.loadAccount(uuid));
+    }
+
+    @Override
+    public void unloadAccount(UUID uuid) {
+        time("unloadAccount", () -> delegate.unloadAccount(uuid));
+    }
+
+    @Override
+    public boolean hasAccount(UUID uuid) {
+        return time("hasAccount", () -> delegate.hasAccount(uuid));
+    }
+
+    @Override
+    public Money getBalance(UUID uuid) {
+        return time("getBalance", () -> delegate.getBalance(uuid));
+    }
+
+    @Override
+    public void setBalance(UUID uuid, Money amount) {
+        time("setBalance", () -> delegate.setBalance(uuid, amount));
+    }
+
+    @Override
+    public boolean isFrozen(UUID uuid) {
+        return time("isFrozen", () -> delegate.isFrozen(uuid));
+    }
+
+    @Override
+    public void setFrozen(UUID uuid, boolean frozen) {
+        time("setFrozen", () -> delegate.setFrozen(uuid, frozen));
+    }
+
+    @Override
+    public boolean getScoreboardState(UUID uuid) {
+        return time("getScoreboardState", () -> delegate.getScoreboardState(uuid));
+    }
+
+    @Override
+    public void setScoreboardState(UUID uuid, boolean enabled) {
+        time("setScoreboardState", () -> delegate.setScoreboardState(uuid, enabled));
+    }
+
+    @Override
+    public Map<UUID, Money> getAllBalances() {
+        return time("getAllBalances", delegate::getAllBalances);
+    }
+
+    @Override
+    public void saveName(UUID uuid, String name) {
+        time("saveName", () -> delegate.saveName(uuid, name));
+    }
+
+    @Override
+    public String loadName(UUID uuid) {
+        return time("loadName", () -> delegate.loadName(uuid));
+    }
+
+    @Override
+    public UUID loadUuid(String name) {
+        return time("loadUuid", () -> delegate.loadUuid(name));
+    }
+
+    @Override
+    public void addCommission(Money amount) {
+        time("addCommission", () -> delegate.addCommission(amount));
+    }
+
+    @Override
+    public Money getTotalCommission() {
+        return time("getTotalCommission", delegate::getTotalCommission);
+    }
+
+    @Override
+    public Money calculateTotalBalance() {
+        return time("calculateTotalBalance", delegate::calculateTotalBalance);
+    }
+
+    @Override
+    public void saveData() {
+        time("saveData", delegate::saveData);
+    }
+
+    @Override
+    public void close() {
+        time("close", delegate::close);
+    }
+
+    @Override
+    public boolean migrateFrom(FileConfiguration oldConfig) {
+        return time("migrateFrom", () -> delegate.migrateFrom(oldConfig));
+    }
+
+    @Override
+    public int countAccounts() {
+        return time("countAccounts", delegate::countAccounts);
+    }
+
+    @Override
+    public AccountBatch exportAccounts(long cursor, int limit) {
+        return time("exportAccounts", () -> delegate.exportAccounts(cursor, limit));
+    }
+
+    @Override
+    public void importAccounts(List<AccountRecord> records, boolean overwrite) {
+        time("importAccounts", () -> delegate.importAccounts(records, overwrite));
+    }
+
+    @Override
+    public List<TransactionRecord> exportTransactions(long afterId, int limit) {
+        return time("exportTransactions", () -> delegate.exportTransactions(afterId, limit));
+    }
+
+    @Override
+    public void logTransactions(List<TransactionRecord> records) {
+        time("logTransactions", () -> delegate.logTransactions(records));
+    }
+
+    @Override
+    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, long cursorId, boolean older, int limit) {
+        return timer("getPlayerHistory").timeAsync(() -> delegate.getPlayerHistory(playerUuid, cursorId, older, limit));
+    }
+
+    @Override
+    public CompletableFuture<Integer> countPlayerHistory(UUID playerUuid) {
+        return timer("countPlayerHistory").timeAsync(() -> delegate.countPlayerHistory(playerUuid));
+    }
+}
@@ -0,0 +1,558 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.model.TransactionRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class MappedStorageProvider implements StorageProvider {
+
+    private static final int MAGIC = 0x43454D31;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_COUNT = 12;
+    private static final int HEADER_COMMISSION = 16;
+
+    private static final int RECORD_SIZE = 48;
+    private static final int FIELD_MSB = 0;
+    private static final int FIELD_LSB = 8;
+    private static final int FIELD_BALANCE = 16;
+    private static final int FIELD_FLAGS = 24;
+    private static final int FIELD_NAME_LENGTH = 28;
+    private static final int FIELD_NAME = 32;
+    private static final int MAX_NAME_BYTES = 16;
+
+    private static final int FLAG_USED = 1;
+    private static final int FLAG_ACCOUNT = 1 << 1;
+    private static final int FLAG_FROZEN = 1 << 2;
+    private static final int FLAG_SCOREBOARD = 1 << 3;
+
+    private static final double MAX_LOAD_FACTOR = 0.7;
+    private static final int MAX_CAPACITY = Integer.highestOneBit((Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE);
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final CoreEconomy plugin;
+    private final Path dataFile;
+    private final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+    private volatile Table table;
+
+    public MappedStorageProvider(CoreEconomy plugin) {
+        this.plugin = plugin;
+        this.dataFile = new File(plugin.getDataFolder(), plugin.getConfigManager().getMappedFileName()).toPath();
+        try {
+            Files.createDirectories(dataFile.getParent());
+            this.table = Table.open(dataFile, capacityFor(plugin.getConfigManager().getMappedInitialCapacity()));
+            plugin.getLogger().info("Mapped " + table.count() + " account records from " + dataFile.getFileName() + " (capacity " + table.capacity + ").");
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open mapped account file " + dataFile + "!");
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void saveData() {
+        table.buffer.force();
+    }
+
+    @Override
+    public void createAccount(UUID uuid) {
+        boolean scoreboardDefault = plugin.getConfigManager().isScoreboardEnabledByDefault();
+        mutate(uuid, (t, offset) -> {
+            int flags;
+            do {
+                flags = (int) INTS.getVolatile(t.buffer, offset + FIELD_FLAGS);
+                if ((flags & FLAG_ACCOUNT) != 0) {
+                    return;
+                }
+            } while (!INTS.compareAndSet(t.buffer, offset + FIELD_FLAGS, flags, flags | FLAG_ACCOUNT | (scoreboardDefault ? FLAG_SCOREBOARD : 0)));
+        });
+    }
+
+    @Override
+    public void loadAccount(UUID uuid) {
+    }
+
+    @Override
+    public void unloadAccount(UUID uuid) {
+    }
+
+    @Override
+    public boolean hasAccount(UUID uuid) {
+        return (readFlags(uuid) & FLAG_ACCOUNT) != 0;
+    }
+
+    @Override
+    public Money getBalance(UUID uuid) {
+        Table t = table;
+        int slot = t.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return slot >= 0 ? Money.ofMinor((long) LONGS.getVolatile(t.buffer, t.offset(slot) + FIELD_BALANCE)) : Money.ZERO;
+    }
+
+    @Override
+    public void setBalance(UUID uuid, Money amount) {
+        long minorUnits = amount.getMinorUnits();
+        mutate(uuid, (t, offset) -> LONGS.setVolatile(t.buffer, offset + FIELD_BALANCE, minorUnits));
+    }
+
+    @Override
+    public boolean isFrozen(UUID uuid) {
+        return (readFlags(uuid) & FLAG_FROZEN) != 0;
+    }
+
+    @Override
+    public void setFrozen(UUID uuid, boolean frozen) {
+        setFlag(uuid, FLAG_FROZEN, frozen);
+    }
+
+    @Override
+    public boolean getScoreboardState(UUID uuid) {
+        int flags = readFlags(uuid);
+        if ((flags & FLAG_ACCOUNT) == 0) {
+            return plugin.getConfigManager().isScoreboardEnabledByDefault();
+        }
+        return (flags & FLAG_SCOREBOARD) != 0;
+    }
+
+    @Override
+    public void setScoreboardState(UUID uuid, boolean enabled) {
+        setFlag(uuid, FLAG_SCOREBOARD, enabled);
+    }
+
+    @Override
+    public Map<UUID, Money> getAllBalances() {
+        Table t = table;
+        Map<UUID, Money> balances = new HashMap<>(Math.max(16, (int) (t.count() / 0.75f) + 1));
+        for (int slot = 0; slot < t.capacity; slot++) {
+            int offset = t.offset(slot);
+            if (((int) INTS.getVolatile(t.buffer, offset + FIELD_FLAGS) & FLAG_ACCOUNT) != 0) {
+                balances.put(new UUID(t.buffer.getLong(offset + FIELD_MSB), t.buffer.getLong(offset + FIELD_LSB)),
+                        Money.ofMinor((long) LONGS.getVolatile(t.buffer, offset + FIELD_BALANCE)));
+            }
+        }
+        return balances;
+    }
+
+    @Override
+    public void saveName(UUID uuid, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            return;
+        }
+        structureLock.writeLock().lock();
+        try {
+            int slot = insertSlot(uuid);
+            Table t = table;
+            int offset = t.offset(slot);
+            for (int i = 0; i < MAX_NAME_BYTES; i++) {
+                t.buffer.put(offset + FIELD_NAME + i, i < bytes.length ? bytes[i] : 0);
+            }
+            INTS.setVolatile(t.buffer, offset + FIELD_NAME_LENGTH, bytes.length);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String loadName(UUID uuid) {
+        structureLock.readLock().lock();
+        try {
+            Table t = table;
+            int slot = t.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            return slot >= 0 ? t.readName(t.offset(slot)) : null;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public UUID loadUuid(String name) {
+        structureLock.readLock().lock();
+        try {
+            Table t = table;
+            for (int slot = 0; slot < t.capacity; slot++) {
+                int offset = t.offset(slot);
+                if (((int) INTS.getVolatile(t.buffer, offset + FIELD_FLAGS) & FLAG_USED) == 0) {
+                    continue;
+                }
+                String stored = t.readName(offset);
+                if (stored != null && stored.equalsIgnoreCase(name)) {
+                    return new UUID(t.buffer.getLong(offset + FIELD_MSB), t.buffer.getLong(offset + FIELD_LSB));
+                }
+            }
+            return null;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addCommission(Money amount) {
+        structureLock.readLock().lock();
+        try {
+            LONGS.getAndAdd(table.buffer, HEADER_COMMISSION, amount.getMinorUnits());
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Money getTotalCommission() {
+        return Money.ofMinor((long) LONGS.getVolatile(table.buffer, HEADER_COMMISSION));
+    }
+
+    @Override
+    public Money calculateTotalBalance() {
+        Table t = table;
+        long total = 0L;
+        for (int slot = 0; slot < t.capacity; slot++) {
+            int offset = t.offset(slot);
+            if (((int) INTS.getVolatile(t.buffer, offset + FIELD_FLAGS) & FLAG_ACCOUNT) != 0) {
+                total = Math.addExact(total, (long) LONGS.getVolatile(t.buffer, offset + FIELD_BALANCE));
+            }
+        }
+        return Money.ofMinor(total);
+    }
+
+    @Override
+    public void close() {
+        structureLock.writeLock().lock();
+        try {
+            table.buffer.force();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean migrateFrom(FileConfiguration oldConfig) {
+        try {
+            ConfigurationSection balancesSection = oldConfig.getConfigurationSection("balances");
+            if (balancesSection != null) {
+                for (String key : balancesSection.getKeys(false)) {
+                    UUID uuid = UUID.fromString(key);
+                    createAccount(uuid);
+                    setBalance(uuid, Money.parse(balancesSection.getString(key, "0.0")));
+                    setFrozen(uuid, oldConfig.getBoolean("frozen_accounts." + key, false));
+                    setScoreboardState(uuid, oldConfig.getBoolean("scoreboard_states." + key, plugin.getConfigManager().isScoreboardEnabledByDefault()));
+                }
+            }
+            long commission = Money.parse(oldConfig.getString("economy_stats.total_commission", "0.0")).getMinorUnits();
+            LONGS.setVolatile(table.buffer, HEADER_COMMISSION, commission);
+            table.buffer.force();
+            return true;
+        } catch (IllegalArgumentException | ArithmeticException | IllegalStateException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public int countAccounts() {
+        Table t = table;
+        int count = 0;
+        for (int slot = 0; slot < t.capacity; slot++) {
+            if (((int) INTS.getVolatile(t.buffer, t.offset(slot) + FIELD_FLAGS) & FLAG_ACCOUNT) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public AccountBatch exportAccounts(long cursor, int limit) {
+        List<AccountRecord> records = new ArrayList<>(limit);
+        structureLock.readLock().lock();
+        try {
+            Table t = table;
+            int slot = 0;
+            if (cursor != AccountBatch.START && (int) (cursor >>> 32) == t.capacity) {
+                slot = (int) cursor;
+            }
+            for (; slot < t.capacity && records.size() < limit; slot++) {
+                int offset = t.offset(slot);
+                int flags = (int) INTS.getVolatile(t.buffer, offset + FIELD_FLAGS);
+                if ((flags & FLAG_ACCOUNT) == 0) {
+                    continue;
+                }
+                records.add(new AccountRecord(
+                        new UUID(t.buffer.getLong(offset + FIELD_MSB), t.buffer.getLong(offset + FIELD_LSB)),
+                        Money.ofMinor((long) LONGS.getVolatile(t.buffer, offset + FIELD_BALANCE)),
+                        (flags & FLAG_FROZEN) != 0,
+                        (flags & FLAG_SCOREBOARD) != 0,
+                        t.readName(offset)));
+            }
+            return new AccountBatch(records, slot >= t.capacity ? AccountBatch.END : ((long) t.capacity << 32) | slot);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void importAccounts(List<AccountRecord> records, boolean overwrite) {
+        structureLock.writeLock().lock();
+        try {
+            for (AccountRecord record : records) {
+                int slot = insertSlot(record.getUuid());
+                Table t = table;
+                int offset = t.offset(slot);
+                if (record.getName() != null && (overwrite || t.readName(offset) == null)) {
+                    saveName(record.getUuid(), record.getName());
+                }
+                int flags = (int) INTS.getVolatile(t.buffer, offset + FIELD_FLAGS);
+                if (!overwrite && (flags & FLAG_ACCOUNT) != 0) {
+                    continue;
+                }
+                LONGS.setVolatile(t.buffer, offset + FIELD_BALANCE, record.getBalance().getMinorUnits());
+                INTS.setVolatile(t.buffer, offset + FIELD_FLAGS, FLAG_USED | FLAG_ACCOUNT
+                        | (record.isFrozen() ? FLAG_FROZEN : 0)
+                        | (record.isScoreboardEnabled() ? FLAG_SCOREBOARD : 0));
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<TransactionRecord> exportTransactions(long afterId, int limit) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void logTransactions(List<TransactionRecord> records) {
+        // Transaction history is not supported for mapped storage.
+    }
+
+    @Override
+    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, long cursorId, boolean older, int limit) {
+        plugin.getLogger().warning("Transaction history is not supported for mapped storage.");
+        return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+
+    @Override
+    public CompletableFuture<Integer> countPlayerHistory(UUID playerUuid) {
+        return CompletableFuture.completedFuture(0);
+    }
+
+    private int readFlags(UUID uuid) {
+        Table t = table;
+        int slot = t.find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return slot >= 0 ? (int) INTS.getVolatile(t.buffer, t.offset(slot) + FIELD_FLAGS) : 0;
+    }
+
+    private void setFlag(UUID uuid, int flag, boolean value) {
+        mutate(uuid, (t, offset) -> {
+            int flags;
+            int updated;
+            do {
+                flags = (int) INTS.getVolatile(t.buffer, offset + FIELD_FLAGS);
+                updated = value ? flags | flag : flags & ~flag;
+            } while (flags != updated && !INTS.compareAndSet(t.buffer, offset + FIELD_FLAGS, flags, updated));
+        });
+    }
+
+    private void mutate(UUID uuid, RecordWriter writer) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        structureLock.readLock().lock();
+        try {
+            Table t = table;
+            int slot = t.find(msb, lsb);
+            if (slot >= 0) {
+                writer.write(t, t.offset(slot));
+                return;
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+
+        structureLock.writeLock().lock();
+        try {
+            int slot = insertSlot(uuid);
+            writer.write(table, table.offset(slot));
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    private int insertSlot(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int slot = table.find(msb, lsb);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (table.count() + 1 > (long) (table.capacity * MAX_LOAD_FACTOR)) {
+            grow();
+            slot = table.find(msb, lsb);
+        }
+
+        Table t = table;
+        int free = -slot - 1;
+        int offset = t.offset(free);
+        t.buffer.putLong(offset + FIELD_MSB, msb);
+        t.buffer.putLong(offset + FIELD_LSB, lsb);
+        t.buffer.putLong(offset + FIELD_BALANCE, 0L);
+        t.buffer.putInt(offset + FIELD_NAME_LENGTH, 0);
+        INTS.setVolatile(t.buffer, offset + FIELD_FLAGS, FLAG_USED);
+        t.buffer.putInt(HEADER_COUNT, t.count() + 1);
+        return free;
+    }
+
+    private void grow() {
+        Table old = table;
+        if (old.capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Mapped account file is full (" + old.capacity + " slots).");
+        }
+        int newCapacity = old.capacity << 1;
+        long start = System.currentTimeMillis();
+        Path resized = dataFile.resolveSibling(dataFile.getFileName() + ".resize");
+        try {
+            Files.deleteIfExists(resized);
+            Table grown = Table.open(resized, newCapacity);
+            grown.buffer.putLong(HEADER_COMMISSION, (long) LONGS.getVolatile(old.buffer, HEADER_COMMISSION));
+            for (int slot = 0; slot < old.capacity; slot++) {
+                int from = old.offset(slot);
+                if ((old.buffer.getInt(from + FIELD_FLAGS) & FLAG_USED) == 0) {
+                    continue;
+                }
+                int to = grown.offset(-grown.find(old.buffer.getLong(from + FIELD_MSB), old.buffer.getLong(from + FIELD_LSB)) - 1);
+                for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+                    grown.buffer.putLong(to + i, old.buffer.getLong(from + i));
+                }
+            }
+            grown.buffer.putInt(HEADER_COUNT, old.count());
+            grown.buffer.force();
+            try {
+                Files.move(resized, dataFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(resized, dataFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            old.buffer.force();
+            table = grown;
+            plugin.getLogger().info("Grew mapped account file to " + newCapacity + " slots in " + (System.currentTimeMillis() - start) + " ms.");
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not grow mapped account file!");
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int capacityFor(int requested) {
+        int capacity = Integer.highestOneBit(Math.max(16, requested) - 1) << 1;
+        return Math.min(capacity, MAX_CAPACITY);
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(Table table, int offset);
+    }
+
+    private static final class Table {
+        final MappedByteBuffer buffer;
+        final int capacity;
+        final int mask;
+
+        private Table(MappedByteBuffer buffer, int capacity) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+        }
+
+        static Table open(Path path, int initialCapacity) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                int capacity = initialCapacity;
+                boolean created = channel.size() == 0;
+                if (!created) {
+                    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                    if (header.getInt(HEADER_MAGIC) != MAGIC || header.getInt(HEADER_VERSION) != FORMAT_VERSION) {
+                        throw new IOException("Unrecognized mapped account file format: " + path);
+                    }
+                    capacity = header.getInt(HEADER_CAPACITY);
+                    if (Integer.bitCount(capacity) != 1 || channel.size() < HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+                        throw new IOException("Mapped account file is truncated or corrupt: " + path);
+                    }
+                }
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+                if (created) {
+                    buffer.putInt(HEADER_MAGIC, MAGIC);
+                    buffer.putInt(HEADER_VERSION, FORMAT_VERSION);
+                    buffer.putInt(HEADER_CAPACITY, capacity);
+                    buffer.putInt(HEADER_COUNT, 0);
+                    buffer.putLong(HEADER_COMMISSION, 0L);
+                    buffer.force();
+                }
+                return new Table(buffer, capacity);
+            }
+        }
+
+        int count() {
+            return buffer.getInt(HEADER_COUNT);
+        }
+
+        int offset(int slot) {
+            return HEADER_SIZE + slot * RECORD_SIZE;
+        }
+
+        int find(long msb, long lsb) {
+            int slot = (int) mix(msb ^ lsb) & mask;
+            while (true) {
+                int offset = offset(slot);
+                if (((int) INTS.getVolatile(buffer, offset + FIELD_FLAGS) & FLAG_USED) == 0) {
+                    return -slot - 1;
+                }
+                if (buffer.getLong(offset + FIELD_MSB) == msb && buffer.getLong(offset + FIELD_LSB) == lsb) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        String readName(int offset) {
+            int length = (int) INTS.getVolatile(buffer, offset + FIELD_NAME_LENGTH);
+            if (length <= 0 || length > MAX_NAME_BYTES) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(offset + FIELD_NAME + i);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
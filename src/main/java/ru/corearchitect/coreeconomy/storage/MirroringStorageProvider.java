@@ -0,0 +1,256 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.model.TransactionRecord;
+import ru.corearchitect.coreeconomy.util.StripedLock;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+public class MirroringStorageProvider implements StorageProvider {
+
+    private final StorageProvider source;
+    private final StorageProvider target;
+    private final StripedLock accountLocks = new StripedLock(64);
+    private final ReentrantReadWriteLock switchLock = new ReentrantReadWriteLock();
+    private final Object commissionLock = new Object();
+    private volatile StorageProvider primary;
+    private volatile boolean mirroring = true;
+    private volatile RuntimeException mirrorFailure;
+
+    public MirroringStorageProvider(StorageProvider source, StorageProvider target) {
+        this.source = source;
+        this.target = target;
+        this.primary = source;
+    }
+
+    public void syncCommission() {
+        switchLock.readLock().lock();
+        try {
+            synchronized (commissionLock) {
+                Money difference = source.getTotalCommission().minus(target.getTotalCommission());
+                if (!difference.isZero()) {
+                    target.addCommission(difference);
+                }
+            }
+        } finally {
+            switchLock.readLock().unlock();
+        }
+    }
+
+    public void finish(StorageProvider newPrimary, Runnable finalStep) {
+        switchLock.writeLock().lock();
+        try {
+            if (finalStep != null) {
+                finalStep.run();
+            }
+            primary = newPrimary;
+            mirroring = false;
+        } finally {
+            switchLock.writeLock().unlock();
+        }
+    }
+
+    public RuntimeException getMirrorFailure() {
+        return mirrorFailure;
+    }
+
+    private void writeAccount(UUID uuid, Consumer<StorageProvider> action) {
+        switchLock.readLock().lock();
+        try {
+            if (!mirroring) {
+                action.accept(primary);
+                return;
+            }
+            accountLocks.withLock(uuid, () -> {
+                action.accept(source);
+                if (source.hasAccount(uuid)) {
+                    mirror(provider -> provider.importAccounts(Collections.singletonList(new AccountRecord(
+                            uuid, source.getBalance(uuid), source.isFrozen(uuid), source.getScoreboardState(uuid), null)), true));
+                }
+                return null;
+            });
+        } finally {
+            switchLock.readLock().unlock();
+        }
+    }
+
+    private void writeBoth(Consumer<StorageProvider> action) {
+        switchLock.readLock().lock();
+        try {
+            action.accept(primary);
+            if (mirroring) {
+                mirror(action);
+            }
+        } finally {
+            switchLock.readLock().unlock();
+        }
+    }
+
+    private void mirror(Consumer<StorageProvider> action) {
+        if (mirrorFailure != null) {
+            return;
+        }
+        try {
+            action.accept(target);
+        } catch (RuntimeException e) {
+            mirrorFailure = e;
+        }
+    }
+
+    @Override
+    public void createAccount(UUID uuid) {
+        writeAccount(uuid, provider -> provider.createAccount(uuid));
+    }
+
+    @Override
+    public void loadAccount(UUID uuid) {
+        primary.loadAccount(uuid);
+    }
+
+    @Override
+    public void unloadAccount(UUID uuid) {
+        primary.unloadAccount(uuid);
+    }
+
+    @Override
+    public boolean hasAccount(UUID uuid) {
+        return primary.hasAccount(uuid);
+    }
+
+    @Override
+    public Money getBalance(UUID uuid) {
+        return primary.getBalance(uuid);
+    }
+
+    @Override
+    public void setBalance(UUID uuid, Money amount) {
+        writeAccount(uuid, provider -> provider.setBalance(uuid, amount));
+    }
+
+    @Override
+    public boolean isFrozen(UUID uuid) {
+        return primary.isFrozen(uuid);
+    }
+
+    @Override
+    public void setFrozen(UUID uuid, boolean frozen) {
+        writeAccount(uuid, provider -> provider.setFrozen(uuid, frozen));
+    }
+
+    @Override
+    public boolean getScoreboardState(UUID uuid) {
+        return primary.getScoreboardState(uuid);
+    }
+
+    @Override
+    public void setScoreboardState(UUID uuid, boolean enabled) {
+        writeAccount(uuid, provider -> provider.setScoreboardState(uuid, enabled));
+    }
+
+    @Override
+    public Map<UUID, Money> getAllBalances() {
+        return primary.getAllBalances();
+    }
+
+    @Override
+    public void saveName(UUID uuid, String name) {
+        writeBoth(provider -> provider.saveName(uuid, name));
+    }
+
+    @Override
+    public String loadName(UUID uuid) {
+        return primary.loadName(uuid);
+    }
+
+    @Override
+    public UUID loadUuid(String name) {
+        return primary.loadUuid(name);
+    }
+
+    @Override
+    public void addCommission(Money amount) {
+        switchLock.readLock().lock();
+        try {
+            synchronized (commissionLock) {
+                primary.addCommission(amount);
+                if (mirroring) {
+                    mirror(provider -> provider.addCommission(amount));
+                }
+            }
+        } finally {
+            switchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Money getTotalCommission() {
+        return primary.getTotalCommission();
+    }
+
+    @Override
+    public Money calculateTotalBalance() {
+        return primary.calculateTotalBalance();
+    }
+
+    @Override
+    public void saveData() {
+        writeBoth(StorageProvider::saveData);
+    }
+
+    @Override
+    public void close() {
+        primary.close();
+    }
+
+    @Override
+    public boolean migrateFrom(FileConfiguration oldConfig) {
+        return primary.migrateFrom(oldConfig);
+    }
+
+    @Override
+    public int countAccounts() {
+        return primary.countAccounts();
+    }
+
+    @Override
+    public AccountBatch exportAccounts(long cursor, int limit) {
+        return primary.exportAccounts(cursor, limit);
+    }
+
+    @Override
+    public void importAccounts(List<AccountRecord> records, boolean overwrite) {
+        writeBoth(provider -> provider.importAccounts(records, overwrite));
+    }
+
+    @Override
+    public List<TransactionRecord> exportTransactions(long afterId, int limit) {
+        return primary.exportTransactions(afterId, limit);
+    }
+
+    @Override
+    public void logTransactions(List<TransactionRecord> records) {
+        switchLock.readLock().lock();
+        try {
+            primary.logTransactions(records);
+        } finally {
+            switchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, long cursorId, boolean older, int limit) {
+        return primary.getPlayerHistory(playerUuid, cursorId, older, limit);
+    }
+
+    @Override
+    public CompletableFuture<Integer> countPlayerHistory(UUID playerUuid) {
+        return primary.countPlayerHistory(playerUuid);
+    }
+}
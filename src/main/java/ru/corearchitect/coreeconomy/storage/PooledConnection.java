@@ -0,0 +1,65 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import ru.corearchitect.coreeconomy.util.OperationTrace;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PooledConnection implements AutoCloseable {
+
+    private final SQLiteConnectionPool pool;
+    private final Connection connection;
+    private final boolean writer;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    PooledConnection(SQLiteConnectionPool pool, Connection connection, boolean writer) {
+        this.pool = pool;
+        this.connection = connection;
+        this.writer = writer;
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        OperationTrace.annotate(sql);
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public boolean isWriter() {
+        return writer;
+    }
+
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+
+    void closePhysically() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        statements.clear();
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import ru.corearchitect.coreeconomy.util.OperationTrace;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+public class SQLiteConnectionPool {
+
+    private static final Pattern PRAGMA_NAME = Pattern.compile("[a-z_]+");
+    private static final Pattern PRAGMA_VALUE = Pattern.compile("-?[A-Za-z0-9_]+");
+
+    private final String url;
+    private final int readerCount;
+    private final Map<String, String> pragmas;
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final List<PooledConnection> allReaders = new ArrayList<>();
+    private BlockingQueue<PooledConnection> readers;
+    private PooledConnection writer;
+    private volatile boolean open;
+
+    public SQLiteConnectionPool(File databaseFile, int readerCount, Map<String, String> pragmas) {
+        this.url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        this.readerCount = Math.max(0, readerCount);
+        this.pragmas = pragmas;
+    }
+
+    public void open() throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite JDBC driver not found", e);
+        }
+
+        this.writer = new PooledConnection(this, openConnection(false), true);
+        this.readers = new ArrayBlockingQueue<>(Math.max(1, readerCount));
+        for (int i = 0; i < readerCount; i++) {
+            PooledConnection reader = new PooledConnection(this, openConnection(true), false);
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+        this.open = true;
+    }
+
+    private Connection openConnection(boolean readOnly) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            for (Map.Entry<String, String> pragma : pragmas.entrySet()) {
+                String name = pragma.getKey().toLowerCase();
+                String value = pragma.getValue();
+                if (!PRAGMA_NAME.matcher(name).matches() || !PRAGMA_VALUE.matcher(value).matches()) {
+                    throw new SQLException("Invalid SQLite pragma: " + name + " = " + value);
+                }
+                statement.execute("PRAGMA " + name + " = " + value + ";");
+            }
+            if (readOnly) {
+                statement.execute("PRAGMA query_only = ON;");
+            }
+        }
+        return connection;
+    }
+
+    public PooledConnection writer() throws SQLException {
+        ensureOpen();
+        try (OperationTrace.Span ignored = OperationTrace.span("pool.writer_wait")) {
+            writerLock.lock();
+        }
+        return writer;
+    }
+
+    public PooledConnection reader() throws SQLException {
+        ensureOpen();
+        if (readerCount == 0 || writerLock.isHeldByCurrentThread()) {
+            return writer();
+        }
+        try (OperationTrace.Span ignored = OperationTrace.span("pool.reader_wait")) {
+            return readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    void release(PooledConnection connection) {
+        if (connection.isWriter()) {
+            writerLock.unlock();
+        } else if (open) {
+            readers.offer(connection);
+        } else {
+            connection.closePhysically();
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (!open) {
+            throw new SQLException("SQLite connection pool is not open");
+        }
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        writerLock.lock();
+        try {
+            writer.closePhysically();
+        } finally {
+            writerLock.unlock();
+        }
+        for (PooledConnection reader : allReaders) {
+            if (readers.remove(reader)) {
+                reader.closePhysically();
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.Money;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SQLiteSchemaMigrator {
+
+    public static final int CURRENT_VERSION = 3;
+
+    private final CoreEconomy plugin;
+
+    public SQLiteSchemaMigrator(CoreEconomy plugin) {
+        this.plugin = plugin;
+    }
+
+    public void migrate(Connection connection) throws SQLException {
+        int version = getUserVersion(connection);
+        if (version >= CURRENT_VERSION) {
+            return;
+        }
+
+        plugin.getLogger().info("Upgrading database schema from version " + version + " to " + CURRENT_VERSION + "...");
+        connection.setAutoCommit(false);
+        try {
+            if (version < 1) {
+                migrateToUuidHistory(connection);
+            }
+            if (version < 2) {
+                migrateToMinorUnits(connection);
+            }
+            if (version < 3) {
+                seedPlayerNames(connection);
+            }
+            setUserVersion(connection, CURRENT_VERSION);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        plugin.getLogger().info("Database schema upgraded to version " + CURRENT_VERSION + ".");
+    }
+
+    private void migrateToUuidHistory(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (!hasColumn(connection, "transactions", "initiator_uuid")) {
+                statement.execute("ALTER TABLE transactions ADD COLUMN initiator_uuid VARCHAR(36);");
+            }
+            if (!hasColumn(connection, "transactions", "target_uuid")) {
+                statement.execute("ALTER TABLE transactions ADD COLUMN target_uuid VARCHAR(36);");
+            }
+
+            backfillUuids(connection, "initiator_name", "initiator_uuid");
+            backfillUuids(connection, "target_name", "target_uuid");
+
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_transactions_initiator ON transactions (initiator_uuid, id);");
+            statement.execute("CREATE INDEX IF NOT EXISTS idx_transactions_target ON transactions (target_uuid, id);");
+
+            statement.execute("DELETE FROM player_history_counts;");
+            statement.execute("INSERT INTO player_history_counts (uuid, tx_count) "
+                    + "SELECT uuid, COUNT(*) FROM ("
+                    + "SELECT initiator_uuid AS uuid FROM transactions WHERE initiator_uuid IS NOT NULL "
+                    + "UNION ALL "
+                    + "SELECT target_uuid AS uuid FROM transactions WHERE target_uuid IS NOT NULL AND target_uuid IS NOT initiator_uuid"
+                    + ") GROUP BY uuid;");
+        }
+    }
+
+    private void migrateToMinorUnits(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE players_v2 (uuid VARCHAR(36) PRIMARY KEY, balance INTEGER NOT NULL, is_frozen BOOLEAN NOT NULL, scoreboard_enabled BOOLEAN NOT NULL);");
+            int converted = 0;
+            try (ResultSet rs = statement.executeQuery("SELECT uuid, CAST(balance AS TEXT), is_frozen, scoreboard_enabled FROM players;");
+                 PreparedStatement insert = connection.prepareStatement("INSERT INTO players_v2 (uuid, balance, is_frozen, scoreboard_enabled) VALUES (?,?,?,?);")) {
+                while (rs.next()) {
+                    insert.setString(1, rs.getString(1));
+                    insert.setLong(2, toMinorUnits(rs.getString(2)));
+                    insert.setBoolean(3, rs.getBoolean(3));
+                    insert.setBoolean(4, rs.getBoolean(4));
+                    insert.addBatch();
+                    if (++converted % 1000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+            statement.execute("DROP TABLE players;");
+            statement.execute("ALTER TABLE players_v2 RENAME TO players;");
+
+            statement.execute("CREATE TABLE economy_stats_v2 (stat_key VARCHAR(255) PRIMARY KEY, stat_value INTEGER NOT NULL);");
+            try (ResultSet rs = statement.executeQuery("SELECT stat_key, CAST(stat_value AS TEXT) FROM economy_stats;");
+                 PreparedStatement insert = connection.prepareStatement("INSERT INTO economy_stats_v2 (stat_key, stat_value) VALUES (?,?);")) {
+                while (rs.next()) {
+                    insert.setString(1, rs.getString(1));
+                    insert.setLong(2, toMinorUnits(rs.getString(2)));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            statement.execute("DROP TABLE economy_stats;");
+            statement.execute("ALTER TABLE economy_stats_v2 RENAME TO economy_stats;");
+            plugin.getLogger().info("Converted " + converted + " balances to fixed-point minor units.");
+        }
+    }
+
+    private void seedPlayerNames(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            int seeded = statement.executeUpdate("INSERT OR IGNORE INTO player_names (uuid, name, name_lower, last_seen) "
+                    + "SELECT uuid, name, LOWER(name), 0 FROM ("
+                    + "SELECT uuid, name, MAX(id) FROM ("
+                    + "SELECT initiator_uuid AS uuid, initiator_name AS name, id FROM transactions WHERE initiator_uuid IS NOT NULL "
+                    + "UNION ALL "
+                    + "SELECT target_uuid AS uuid, target_name AS name, id FROM transactions WHERE target_uuid IS NOT NULL"
+                    + ") GROUP BY uuid);");
+            plugin.getLogger().info("Seeded " + seeded + " player names from transaction history.");
+        }
+    }
+
+    private long toMinorUnits(String value) throws SQLException {
+        try {
+            return Money.parse(value).getMinorUnits();
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new SQLException("Cannot convert stored amount '" + value + "' to minor units", e);
+        }
+    }
+
+    private void backfillUuids(Connection connection, String nameColumn, String uuidColumn) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT DISTINCT " + nameColumn + " FROM transactions WHERE " + uuidColumn + " IS NULL;")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+
+        int resolved = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement("UPDATE transactions SET " + uuidColumn + " = ? WHERE " + nameColumn + " = ? AND " + uuidColumn + " IS NULL;")) {
+            for (String name : names) {
+                OfflinePlayer player = name != null ? Bukkit.getOfflinePlayerIfCached(name) : null;
+                if (player == null) {
+                    continue;
+                }
+                pstmt.setString(1, player.getUniqueId().toString());
+                pstmt.setString(2, name);
+                pstmt.addBatch();
+                resolved++;
+            }
+            pstmt.executeBatch();
+        }
+        plugin.getLogger().info("Resolved " + resolved + "/" + names.size() + " player names in transactions." + nameColumn + ".");
+    }
+
+    private boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA table_info(" + table + ");")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int getUserVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA user_version;")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void setUserVersion(Connection connection, int version) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA user_version = " + version + ";");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import ru.corearchitect.coreeconomy.model.Money;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
+
+public final class SQLiteSnapshot {
+
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    private SQLiteSnapshot() {
+    }
+
+    public static void vacuumInto(File databaseFile, File snapshotFile) throws SQLException {
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            throw new SQLException("Could not remove stale snapshot " + snapshotFile);
+        }
+        try (Connection connection = open(databaseFile);
+             PreparedStatement pstmt = connection.prepareStatement("VACUUM INTO ?;")) {
+            pstmt.setString(1, snapshotFile.getAbsolutePath());
+            pstmt.execute();
+        }
+    }
+
+    public static String quickCheck(File databaseFile) throws SQLException {
+        try (Connection connection = open(databaseFile);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA quick_check;")) {
+            StringBuilder result = new StringBuilder();
+            while (rs.next()) {
+                if (result.length() > 0) {
+                    result.append("; ");
+                }
+                result.append(rs.getString(1));
+            }
+            return result.toString();
+        }
+    }
+
+    public static void restoreAccounts(File databaseFile, Map<UUID, Money> balances, Map<UUID, Boolean> frozen, boolean scoreboardDefault) throws SQLException {
+        String balanceSql = "INSERT INTO players(uuid, balance, is_frozen, scoreboard_enabled) VALUES(?, ?, 0, ?) "
+                + "ON CONFLICT(uuid) DO UPDATE SET balance = excluded.balance;";
+        String frozenSql = "INSERT INTO players(uuid, balance, is_frozen, scoreboard_enabled) VALUES(?, 0, ?, ?) "
+                + "ON CONFLICT(uuid) DO UPDATE SET is_frozen = excluded.is_frozen;";
+        try (Connection connection = open(databaseFile)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement balanceStmt = connection.prepareStatement(balanceSql);
+                 PreparedStatement frozenStmt = connection.prepareStatement(frozenSql)) {
+                for (Map.Entry<UUID, Money> entry : balances.entrySet()) {
+                    balanceStmt.setString(1, entry.getKey().toString());
+                    balanceStmt.setLong(2, entry.getValue().getMinorUnits());
+                    balanceStmt.setBoolean(3, scoreboardDefault);
+                    balanceStmt.addBatch();
+                }
+                balanceStmt.executeBatch();
+                for (Map.Entry<UUID, Boolean> entry : frozen.entrySet()) {
+                    frozenStmt.setString(1, entry.getKey().toString());
+                    frozenStmt.setBoolean(2, entry.getValue());
+                    frozenStmt.setBoolean(3, scoreboardDefault);
+                    frozenStmt.addBatch();
+                }
+                frozenStmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static Connection open(File databaseFile) throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite JDBC driver not found", e);
+        }
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS + ";");
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+}
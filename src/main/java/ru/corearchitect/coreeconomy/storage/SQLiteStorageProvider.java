@@ -1,18 +1,19 @@
 package ru.corearchitect.coreeconomy.storage;
 
-import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.Money;
 import ru.corearchitect.coreeconomy.model.TransactionRecord;
 import ru.corearchitect.coreeconomy.model.TransactionType;
 
 import java.io.File;
 import java.math.BigDecimal;
 import java.sql.*;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -21,47 +22,80 @@ import java.util.concurrent.ConcurrentHashMap;
 public class SQLiteStorageProvider implements StorageProvider {
 
     private final CoreEconomy plugin;
-    private Connection connection;
+    private final AccountCache accountCache;
+    private final SQLiteConnectionPool pool;
 
-    private static final String CREATE_PLAYERS_TABLE = "CREATE TABLE IF NOT EXISTS players (uuid VARCHAR(36) PRIMARY KEY, balance TEXT NOT NULL, is_frozen BOOLEAN NOT NULL, scoreboard_enabled BOOLEAN NOT NULL);";
-    private static final String CREATE_STATS_TABLE = "CREATE TABLE IF NOT EXISTS economy_stats (stat_key VARCHAR(255) PRIMARY KEY, stat_value TEXT NOT NULL);";
-    private static final String CREATE_TRANSACTIONS_TABLE = "CREATE TABLE IF NOT EXISTS transactions (id INTEGER PRIMARY KEY AUTOINCREMENT, timestamp DATETIME NOT NULL, initiator_name VARCHAR(16) NOT NULL, target_name VARCHAR(16) NOT NULL, transaction_type VARCHAR(32) NOT NULL, amount TEXT NOT NULL, commission TEXT NOT NULL);";
+    private static final String CREATE_PLAYERS_TABLE = "CREATE TABLE IF NOT EXISTS players (uuid VARCHAR(36) PRIMARY KEY, balance INTEGER NOT NULL, is_frozen BOOLEAN NOT NULL, scoreboard_enabled BOOLEAN NOT NULL);";
+    private static final String CREATE_STATS_TABLE = "CREATE TABLE IF NOT EXISTS economy_stats (stat_key VARCHAR(255) PRIMARY KEY, stat_value INTEGER NOT NULL);";
+    private static final String CREATE_TRANSACTIONS_TABLE = "CREATE TABLE IF NOT EXISTS transactions (id INTEGER PRIMARY KEY AUTOINCREMENT, timestamp DATETIME NOT NULL, initiator_name VARCHAR(16) NOT NULL, target_name VARCHAR(16) NOT NULL, transaction_type VARCHAR(32) NOT NULL, amount TEXT NOT NULL, commission TEXT NOT NULL, initiator_uuid VARCHAR(36), target_uuid VARCHAR(36));";
+    private static final String CREATE_HISTORY_COUNTS_TABLE = "CREATE TABLE IF NOT EXISTS player_history_counts (uuid VARCHAR(36) PRIMARY KEY, tx_count INTEGER NOT NULL);";
+    private static final String CREATE_NAMES_TABLE = "CREATE TABLE IF NOT EXISTS player_names (uuid VARCHAR(36) PRIMARY KEY, name VARCHAR(16) NOT NULL, name_lower VARCHAR(16) NOT NULL, last_seen INTEGER NOT NULL);";
+    private static final String CREATE_NAMES_INDEX = "CREATE INDEX IF NOT EXISTS idx_player_names_lower ON player_names (name_lower, last_seen);";
 
     public SQLiteStorageProvider(CoreEconomy plugin) {
         this.plugin = plugin;
+        this.accountCache = new AccountCache(this::loadAccountRow, plugin.getConfigManager().getSQLiteCacheEvictAfterSeconds() * 1000L);
+        File databaseFile = new File(plugin.getDataFolder(), plugin.getConfigManager().getSQLiteFilename());
+        this.pool = new SQLiteConnectionPool(databaseFile, plugin.getConfigManager().getSQLiteReaderConnections(), plugin.getConfigManager().getSQLitePragmas());
         connect();
         initializeDatabase();
     }
 
     private void connect() {
-        File databaseFile = new File(plugin.getDataFolder(), plugin.getConfigManager().getSQLiteFilename());
         try {
-            Class.forName("org.sqlite.JDBC");
-            this.connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath());
-        } catch (SQLException | ClassNotFoundException e) {
+            pool.open();
+        } catch (SQLException e) {
             plugin.getLogger().severe("Could not connect to SQLite database!");
             e.printStackTrace();
         }
     }
 
     private void initializeDatabase() {
-        try (Statement statement = connection.createStatement()) {
+        try (PooledConnection conn = pool.writer(); Statement statement = conn.getConnection().createStatement()) {
             statement.execute(CREATE_PLAYERS_TABLE);
             statement.execute(CREATE_STATS_TABLE);
             statement.execute(CREATE_TRANSACTIONS_TABLE);
-            statement.execute("INSERT OR IGNORE INTO economy_stats (stat_key, stat_value) VALUES ('total_commission', '0.0');");
+            statement.execute(CREATE_HISTORY_COUNTS_TABLE);
+            statement.execute(CREATE_NAMES_TABLE);
+            statement.execute(CREATE_NAMES_INDEX);
+            statement.execute("INSERT OR IGNORE INTO economy_stats (stat_key, stat_value) VALUES ('total_commission', 0);");
+            new SQLiteSchemaMigrator(plugin).migrate(conn.getConnection());
         } catch (SQLException e) {
             plugin.getLogger().severe("Could not create database tables!");
             e.printStackTrace();
         }
     }
 
+    private CachedAccount loadAccountRow(UUID uuid) {
+        String sql = "SELECT balance, is_frozen, scoreboard_enabled FROM players WHERE uuid = ?;";
+        try (PooledConnection conn = pool.reader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, uuid.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new CachedAccount(
+                            Money.ofMinor(rs.getLong("balance")),
+                            rs.getBoolean("is_frozen"),
+                            rs.getBoolean("scoreboard_enabled")
+                    );
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     @Override
     public void createAccount(UUID uuid) {
+        if (accountCache.getIfCached(uuid) != null) {
+            return;
+        }
         String sql = "INSERT OR IGNORE INTO players(uuid, balance, is_frozen, scoreboard_enabled) VALUES(?,?,?,?);";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (PooledConnection conn = pool.writer()) {
+            PreparedStatement pstmt = conn.prepare(sql);
             pstmt.setString(1, uuid.toString());
-            pstmt.setString(2, "0.0");
+            pstmt.setLong(2, 0L);
             pstmt.setBoolean(3, false);
             pstmt.setBoolean(4, plugin.getConfigManager().isScoreboardEnabledByDefault());
             pstmt.executeUpdate();
@@ -70,94 +104,90 @@ public class SQLiteStorageProvider implements StorageProvider {
         }
     }
 
+    @Override
+    public void loadAccount(UUID uuid) {
+        accountCache.setOnline(uuid, true);
+    }
+
+    @Override
+    public void unloadAccount(UUID uuid) {
+        accountCache.setOnline(uuid, false);
+    }
+
     @Override
     public boolean hasAccount(UUID uuid) {
-        String sql = "SELECT uuid FROM players WHERE uuid = ?;";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next();
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+        return accountCache.get(uuid) != null;
     }
 
     @Override
-    public BigDecimal getBalance(UUID uuid) {
-        String sql = "SELECT balance FROM players WHERE uuid = ?;";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return new BigDecimal(rs.getString("balance"));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return BigDecimal.ZERO;
+    public Money getBalance(UUID uuid) {
+        CachedAccount account = accountCache.get(uuid);
+        return account != null ? account.getBalance() : Money.ZERO;
     }
 
     @Override
-    public void setBalance(UUID uuid, BigDecimal amount) {
-        String sql = "UPDATE players SET balance = ? WHERE uuid = ?;";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, amount.toPlainString());
-            pstmt.setString(2, uuid.toString());
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    public void setBalance(UUID uuid, Money amount) {
+        CachedAccount account;
+        do {
+            account = accountCache.get(uuid);
+        } while (account != null && !account.setBalance(amount));
     }
 
     @Override
     public boolean isFrozen(UUID uuid) {
-        String sql = "SELECT is_frozen FROM players WHERE uuid = ?;";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getBoolean("is_frozen");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return false;
+        CachedAccount account = accountCache.get(uuid);
+        return account != null && account.isFrozen();
     }
 
     @Override
     public void setFrozen(UUID uuid, boolean frozen) {
-        String sql = "UPDATE players SET is_frozen = ? WHERE uuid = ?;";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setBoolean(1, frozen);
-            pstmt.setString(2, uuid.toString());
-            pstmt.executeUpdate();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        CachedAccount account;
+        do {
+            account = accountCache.get(uuid);
+        } while (account != null && !account.setFrozen(frozen));
     }
 
     @Override
     public boolean getScoreboardState(UUID uuid) {
-        String sql = "SELECT scoreboard_enabled FROM players WHERE uuid = ?;";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, uuid.toString());
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getBoolean("scoreboard_enabled");
+        CachedAccount account = accountCache.get(uuid);
+        return account != null ? account.isScoreboardEnabled() : plugin.getConfigManager().isScoreboardEnabledByDefault();
+    }
+
+    @Override
+    public void setScoreboardState(UUID uuid, boolean enabled) {
+        CachedAccount account;
+        do {
+            account = accountCache.get(uuid);
+        } while (account != null && !account.setScoreboardEnabled(enabled));
+    }
+
+    @Override
+    public Map<UUID, Money> getAllBalances() {
+        flushDirtyAccounts();
+        Map<UUID, Money> allBalances = new ConcurrentHashMap<>();
+        String sql = "SELECT uuid, balance FROM players;";
+        try (PooledConnection conn = pool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
+            while (rs.next()) {
+                UUID uuid = UUID.fromString(rs.getString("uuid"));
+                Money balance = Money.ofMinor(rs.getLong("balance"));
+                allBalances.put(uuid, balance);
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return plugin.getConfigManager().isScoreboardEnabledByDefault();
+        return allBalances;
     }
 
     @Override
-    public void setScoreboardState(UUID uuid, boolean enabled) {
-        String sql = "UPDATE players SET scoreboard_enabled = ? WHERE uuid = ?;";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setBoolean(1, enabled);
-            pstmt.setString(2, uuid.toString());
+    public void saveName(UUID uuid, String name) {
+        String sql = "INSERT INTO player_names (uuid, name, name_lower, last_seen) VALUES (?,?,?,?) "
+                + "ON CONFLICT(uuid) DO UPDATE SET name = excluded.name, name_lower = excluded.name_lower, last_seen = excluded.last_seen;";
+        try (PooledConnection conn = pool.writer()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, uuid.toString());
+            pstmt.setString(2, name);
+            pstmt.setString(3, name.toLowerCase(Locale.ROOT));
+            pstmt.setLong(4, System.currentTimeMillis());
             pstmt.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -165,26 +195,45 @@ public class SQLiteStorageProvider implements StorageProvider {
     }
 
     @Override
-    public Map<UUID, BigDecimal> getAllBalances() {
-        Map<UUID, BigDecimal> allBalances = new ConcurrentHashMap<>();
-        String sql = "SELECT uuid, balance FROM players;";
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                BigDecimal balance = new BigDecimal(rs.getString("balance"));
-                allBalances.put(uuid, balance);
+    public String loadName(UUID uuid) {
+        String sql = "SELECT name FROM player_names WHERE uuid = ?;";
+        try (PooledConnection conn = pool.reader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, uuid.toString());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getString(1);
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return allBalances;
+        return null;
+    }
+
+    @Override
+    public UUID loadUuid(String name) {
+        String sql = "SELECT uuid FROM player_names WHERE name_lower = ? ORDER BY last_seen DESC LIMIT 1;";
+        try (PooledConnection conn = pool.reader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setString(1, name.toLowerCase(Locale.ROOT));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return UUID.fromString(rs.getString(1));
+                }
+            }
+        } catch (SQLException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+        return null;
     }
 
     @Override
-    public void addCommission(BigDecimal amount) {
-        String sql = "UPDATE economy_stats SET stat_value = CAST(stat_value AS REAL) + ? WHERE stat_key = 'total_commission';";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, amount.toPlainString());
+    public void addCommission(Money amount) {
+        String sql = "UPDATE economy_stats SET stat_value = stat_value + ? WHERE stat_key = 'total_commission';";
+        try (PooledConnection conn = pool.writer()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setLong(1, amount.getMinorUnits());
             pstmt.executeUpdate();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -192,157 +241,345 @@ public class SQLiteStorageProvider implements StorageProvider {
     }
 
     @Override
-    public BigDecimal getTotalCommission() {
+    public Money getTotalCommission() {
         String sql = "SELECT stat_value FROM economy_stats WHERE stat_key = 'total_commission';";
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+        try (PooledConnection conn = pool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
             if (rs.next()) {
-                return new BigDecimal(rs.getString("stat_value"));
+                return Money.ofMinor(rs.getLong("stat_value"));
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return BigDecimal.ZERO;
+        return Money.ZERO;
     }
 
     @Override
-    public BigDecimal calculateTotalBalance() {
-        String sql = "SELECT SUM(CAST(balance AS REAL)) FROM players;";
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+    public Money calculateTotalBalance() {
+        flushDirtyAccounts();
+        String sql = "SELECT COALESCE(SUM(balance), 0) FROM players;";
+        try (PooledConnection conn = pool.reader(); ResultSet rs = conn.prepare(sql).executeQuery()) {
             if (rs.next()) {
-                return BigDecimal.valueOf(rs.getDouble(1));
+                return Money.ofMinor(rs.getLong(1));
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return BigDecimal.ZERO;
+        return Money.ZERO;
     }
 
     @Override
-    public void saveData() {
+    public synchronized void saveData() {
+        flushDirtyAccounts();
+        accountCache.evictExpired();
     }
 
-    @Override
-    public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+    private synchronized void flushDirtyAccounts() {
+        Map<UUID, CachedAccount.Snapshot> dirty = accountCache.collectDirty();
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        String sql = "UPDATE players SET balance = ?, is_frozen = ?, scoreboard_enabled = ? WHERE uuid = ?;";
+        try (PooledConnection conn = pool.writer()) {
+            Connection connection = conn.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                PreparedStatement pstmt = conn.prepare(sql);
+                for (Map.Entry<UUID, CachedAccount.Snapshot> entry : dirty.entrySet()) {
+                    CachedAccount.Snapshot snapshot = entry.getValue();
+                    pstmt.setLong(1, snapshot.balance.getMinorUnits());
+                    pstmt.setBoolean(2, snapshot.frozen);
+                    pstmt.setBoolean(3, snapshot.scoreboardEnabled);
+                    pstmt.setString(4, entry.getKey().toString());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
         } catch (SQLException e) {
+            plugin.getLogger().severe("Could not flush " + dirty.size() + " cached accounts to the database!");
             e.printStackTrace();
+            accountCache.restoreDirty(dirty.keySet());
         }
     }
 
+    @Override
+    public void close() {
+        flushDirtyAccounts();
+        pool.close();
+    }
+
     @Override
     public boolean migrateFrom(FileConfiguration oldConfig) {
         String insertSql = "INSERT OR REPLACE INTO players(uuid, balance, is_frozen, scoreboard_enabled) VALUES(?,?,?,?);";
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSql)) {
-            connection.setAutoCommit(false);
-
-            ConfigurationSection balancesSection = oldConfig.getConfigurationSection("balances");
-            if (balancesSection != null) {
-                for (String key : balancesSection.getKeys(false)) {
-                    UUID uuid = UUID.fromString(key);
-                    String balance = balancesSection.getString(key, "0.0");
-                    boolean isFrozen = oldConfig.getBoolean("frozen_accounts." + key, false);
-                    boolean scoreboardEnabled = oldConfig.getBoolean("scoreboard_states." + key, plugin.getConfigManager().isScoreboardEnabledByDefault());
-
-                    pstmt.setString(1, uuid.toString());
-                    pstmt.setString(2, balance);
-                    pstmt.setBoolean(3, isFrozen);
-                    pstmt.setBoolean(4, scoreboardEnabled);
-                    pstmt.addBatch();
+        String updateCommissionSql = "UPDATE economy_stats SET stat_value = ? WHERE stat_key = 'total_commission';";
+        try (PooledConnection conn = pool.writer()) {
+            Connection connection = conn.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                PreparedStatement pstmt = conn.prepare(insertSql);
+
+                ConfigurationSection balancesSection = oldConfig.getConfigurationSection("balances");
+                if (balancesSection != null) {
+                    for (String key : balancesSection.getKeys(false)) {
+                        UUID uuid = UUID.fromString(key);
+                        Money balance = Money.parse(balancesSection.getString(key, "0.0"));
+                        boolean isFrozen = oldConfig.getBoolean("frozen_accounts." + key, false);
+                        boolean scoreboardEnabled = oldConfig.getBoolean("scoreboard_states." + key, plugin.getConfigManager().isScoreboardEnabledByDefault());
+
+                        pstmt.setString(1, uuid.toString());
+                        pstmt.setLong(2, balance.getMinorUnits());
+                        pstmt.setBoolean(3, isFrozen);
+                        pstmt.setBoolean(4, scoreboardEnabled);
+                        pstmt.addBatch();
+                    }
                 }
-            }
 
-            pstmt.executeBatch();
-            connection.commit();
+                pstmt.executeBatch();
 
-            String commission = oldConfig.getString("economy_stats.total_commission", "0.0");
-            String updateCommissionSql = "UPDATE economy_stats SET stat_value = ? WHERE stat_key = 'total_commission';";
-            try (PreparedStatement commissionPstmt = connection.prepareStatement(updateCommissionSql)) {
-                commissionPstmt.setString(1, commission);
+                PreparedStatement commissionPstmt = conn.prepare(updateCommissionSql);
+                commissionPstmt.setLong(1, Money.parse(oldConfig.getString("economy_stats.total_commission", "0.0")).getMinorUnits());
                 commissionPstmt.executeUpdate();
-            }
 
-            return true;
-        } catch (SQLException | IllegalArgumentException e) {
-            e.printStackTrace();
-            try {
+                connection.commit();
+                return true;
+            } catch (SQLException | IllegalArgumentException | ArithmeticException e) {
                 connection.rollback();
-            } catch (SQLException ex) {
-                ex.printStackTrace();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
+        } catch (SQLException | IllegalArgumentException | ArithmeticException e) {
+            e.printStackTrace();
             return false;
-        } finally {
+        }
+    }
+
+    @Override
+    public int countAccounts() {
+        try (PooledConnection conn = pool.reader(); ResultSet rs = conn.prepare("SELECT COUNT(*) FROM players;").executeQuery()) {
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    @Override
+    public AccountBatch exportAccounts(long cursor, int limit) {
+        List<AccountRecord> records = new ArrayList<>(limit);
+        long lastRowId = cursor;
+        String sql = "SELECT p.rowid, p.uuid, p.balance, p.is_frozen, p.scoreboard_enabled, n.name FROM players p "
+                + "LEFT JOIN player_names n ON n.uuid = p.uuid WHERE p.rowid > ? ORDER BY p.rowid LIMIT ?;";
+        try (PooledConnection conn = pool.reader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+            pstmt.setLong(1, cursor);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    lastRowId = rs.getLong(1);
+                    UUID uuid = UUID.fromString(rs.getString(2));
+                    CachedAccount cached = accountCache.getIfCached(uuid);
+                    if (cached != null) {
+                        records.add(new AccountRecord(uuid, cached.getBalance(), cached.isFrozen(), cached.isScoreboardEnabled(), rs.getString(6)));
+                    } else {
+                        records.add(new AccountRecord(uuid, Money.ofMinor(rs.getLong(3)), rs.getBoolean(4), rs.getBoolean(5), rs.getString(6)));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read accounts after row " + cursor, e);
+        }
+        return new AccountBatch(records, records.size() < limit ? AccountBatch.END : lastRowId);
+    }
+
+    @Override
+    public void importAccounts(List<AccountRecord> records, boolean overwrite) {
+        if (records.isEmpty()) {
+            return;
+        }
+        String accountSql = overwrite
+                ? "INSERT INTO players(uuid, balance, is_frozen, scoreboard_enabled) VALUES(?,?,?,?) "
+                + "ON CONFLICT(uuid) DO UPDATE SET balance = excluded.balance, is_frozen = excluded.is_frozen, scoreboard_enabled = excluded.scoreboard_enabled;"
+                : "INSERT OR IGNORE INTO players(uuid, balance, is_frozen, scoreboard_enabled) VALUES(?,?,?,?);";
+        String nameSql = overwrite
+                ? "INSERT INTO player_names (uuid, name, name_lower, last_seen) VALUES (?,?,?,?) "
+                + "ON CONFLICT(uuid) DO UPDATE SET name = excluded.name, name_lower = excluded.name_lower, last_seen = excluded.last_seen;"
+                : "INSERT OR IGNORE INTO player_names (uuid, name, name_lower, last_seen) VALUES (?,?,?,?);";
+        long now = System.currentTimeMillis();
+        try (PooledConnection conn = pool.writer()) {
+            Connection connection = conn.getConnection();
             try {
-                connection.setAutoCommit(true);
+                connection.setAutoCommit(false);
+                PreparedStatement accountPstmt = conn.prepare(accountSql);
+                PreparedStatement namePstmt = conn.prepare(nameSql);
+                boolean hasNames = false;
+                for (AccountRecord record : records) {
+                    accountPstmt.setString(1, record.getUuid().toString());
+                    accountPstmt.setLong(2, record.getBalance().getMinorUnits());
+                    accountPstmt.setBoolean(3, record.isFrozen());
+                    accountPstmt.setBoolean(4, record.isScoreboardEnabled());
+                    accountPstmt.addBatch();
+
+                    if (record.getName() != null) {
+                        namePstmt.setString(1, record.getUuid().toString());
+                        namePstmt.setString(2, record.getName());
+                        namePstmt.setString(3, record.getName().toLowerCase(Locale.ROOT));
+                        namePstmt.setLong(4, now);
+                        namePstmt.addBatch();
+                        hasNames = true;
+                    }
+                }
+                accountPstmt.executeBatch();
+                if (hasNames) {
+                    namePstmt.executeBatch();
+                }
+                connection.commit();
             } catch (SQLException e) {
-                e.printStackTrace();
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not import " + records.size() + " accounts into the database", e);
+        }
+
+        if (overwrite) {
+            for (AccountRecord record : records) {
+                CachedAccount cached = accountCache.getIfCached(record.getUuid());
+                if (cached != null) {
+                    cached.setBalance(record.getBalance());
+                    cached.setFrozen(record.isFrozen());
+                    cached.setScoreboardEnabled(record.isScoreboardEnabled());
+                }
             }
         }
     }
 
     @Override
-    public void logTransaction(TransactionRecord record) {
-        String sql = "INSERT INTO transactions(timestamp, initiator_name, target_name, transaction_type, amount, commission) VALUES(?,?,?,?,?,?);";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setTimestamp(1, Timestamp.valueOf(record.getTimestamp()));
-            pstmt.setString(2, record.getInitiatorName());
-            pstmt.setString(3, record.getTargetName());
-            pstmt.setString(4, record.getTransactionType().name());
-            pstmt.setString(5, record.getAmount().toPlainString());
-            pstmt.setString(6, record.getCommission().toPlainString());
-            pstmt.executeUpdate();
+    public List<TransactionRecord> exportTransactions(long afterId, int limit) {
+        List<TransactionRecord> records = new ArrayList<>(limit);
+        try (PooledConnection conn = pool.reader()) {
+            PreparedStatement pstmt = conn.prepare("SELECT * FROM transactions WHERE id > ? ORDER BY id LIMIT ?;");
+            pstmt.setLong(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    records.add(readTransaction(rs));
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new IllegalStateException("Could not read transactions after id " + afterId, e);
         }
+        return records;
     }
 
     @Override
-    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, int page) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<TransactionRecord> history = new ArrayList<>();
-            String playerName = Bukkit.getOfflinePlayer(playerUuid).getName();
-            int limit = plugin.getConfigManager().getHistoryEntriesPerPage();
-            int offset = (page - 1) * limit;
+    public void logTransactions(List<TransactionRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO transactions(timestamp, initiator_name, target_name, transaction_type, amount, commission, initiator_uuid, target_uuid) VALUES(?,?,?,?,?,?,?,?);";
+        String countSql = "INSERT INTO player_history_counts(uuid, tx_count) VALUES(?, 1) ON CONFLICT(uuid) DO UPDATE SET tx_count = tx_count + 1;";
+        try (PooledConnection conn = pool.writer()) {
+            Connection connection = conn.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                PreparedStatement pstmt = conn.prepare(sql);
+                PreparedStatement countPstmt = conn.prepare(countSql);
+                for (TransactionRecord record : records) {
+                    pstmt.setTimestamp(1, Timestamp.valueOf(record.getTimestamp()));
+                    pstmt.setString(2, record.getInitiatorName());
+                    pstmt.setString(3, record.getTargetName());
+                    pstmt.setString(4, record.getTransactionType().name());
+                    pstmt.setString(5, record.getAmount().toPlainString());
+                    pstmt.setString(6, record.getCommission().toPlainString());
+                    pstmt.setString(7, record.getInitiatorUuid() != null ? record.getInitiatorUuid().toString() : null);
+                    pstmt.setString(8, record.getTargetUuid() != null ? record.getTargetUuid().toString() : null);
+                    pstmt.addBatch();
 
-            String sql = "SELECT * FROM transactions WHERE initiator_name = ? OR target_name = ? ORDER BY timestamp DESC LIMIT ? OFFSET ?;";
+                    if (record.getInitiatorUuid() != null) {
+                        countPstmt.setString(1, record.getInitiatorUuid().toString());
+                        countPstmt.addBatch();
+                    }
+                    if (record.getTargetUuid() != null && !record.getTargetUuid().equals(record.getInitiatorUuid())) {
+                        countPstmt.setString(1, record.getTargetUuid().toString());
+                        countPstmt.addBatch();
+                    }
+                }
+                pstmt.executeBatch();
+                countPstmt.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Could not write " + records.size() + " transactions to the database!");
+            e.printStackTrace();
+        }
+    }
 
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, playerName);
-                pstmt.setString(2, playerName);
+    @Override
+    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, long cursorId, boolean older, int limit) {
+        return plugin.getEconomyExecutor().supply(() -> {
+            List<TransactionRecord> history = new ArrayList<>();
+            String sql = older
+                    ? "SELECT * FROM transactions WHERE id IN ("
+                    + "SELECT id FROM (SELECT id FROM transactions WHERE initiator_uuid = ? AND id < ? ORDER BY id DESC LIMIT ?) "
+                    + "UNION SELECT id FROM (SELECT id FROM transactions WHERE target_uuid = ? AND id < ? ORDER BY id DESC LIMIT ?)"
+                    + ") ORDER BY id DESC LIMIT ?;"
+                    : "SELECT * FROM transactions WHERE id IN ("
+                    + "SELECT id FROM (SELECT id FROM transactions WHERE initiator_uuid = ? AND id > ? ORDER BY id ASC LIMIT ?) "
+                    + "UNION SELECT id FROM (SELECT id FROM transactions WHERE target_uuid = ? AND id > ? ORDER BY id ASC LIMIT ?)"
+                    + ") ORDER BY id ASC LIMIT ?;";
+
+            try (PooledConnection conn = pool.reader()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, playerUuid.toString());
+                pstmt.setLong(2, cursorId);
                 pstmt.setInt(3, limit);
-                pstmt.setInt(4, offset);
-
-                ResultSet rs = pstmt.executeQuery();
-                while (rs.next()) {
-                    history.add(new TransactionRecord(
-                            rs.getTimestamp("timestamp").toLocalDateTime(),
-                            rs.getString("initiator_name"),
-                            rs.getString("target_name"),
-                            TransactionType.valueOf(rs.getString("transaction_type")),
-                            new BigDecimal(rs.getString("amount")),
-                            new BigDecimal(rs.getString("commission"))
-                    ));
+                pstmt.setString(4, playerUuid.toString());
+                pstmt.setLong(5, cursorId);
+                pstmt.setInt(6, limit);
+                pstmt.setInt(7, limit);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        history.add(readTransaction(rs));
+                    }
                 }
             } catch (SQLException e) {
                 e.printStackTrace();
             }
+            if (!older) {
+                Collections.reverse(history);
+            }
             return history;
         });
     }
 
     @Override
     public CompletableFuture<Integer> countPlayerHistory(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            String playerName = Bukkit.getOfflinePlayer(playerUuid).getName();
-            String sql = "SELECT COUNT(id) FROM transactions WHERE initiator_name = ? OR target_name = ?;";
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, playerName);
-                pstmt.setString(2, playerName);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    return rs.getInt(1);
+        return plugin.getEconomyExecutor().supply(() -> {
+            String sql = "SELECT tx_count FROM player_history_counts WHERE uuid = ?;";
+            try (PooledConnection conn = pool.reader()) {
+                PreparedStatement pstmt = conn.prepare(sql);
+                pstmt.setString(1, playerUuid.toString());
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
                 }
             } catch (SQLException e) {
                 e.printStackTrace();
@@ -350,4 +587,20 @@ public class SQLiteStorageProvider implements StorageProvider {
             return 0;
         });
     }
-}
\ No newline at end of file
+
+    private TransactionRecord readTransaction(ResultSet rs) throws SQLException {
+        String initiatorUuid = rs.getString("initiator_uuid");
+        String targetUuid = rs.getString("target_uuid");
+        return new TransactionRecord(
+                rs.getLong("id"),
+                rs.getTimestamp("timestamp").toLocalDateTime(),
+                initiatorUuid != null ? UUID.fromString(initiatorUuid) : null,
+                rs.getString("initiator_name"),
+                targetUuid != null ? UUID.fromString(targetUuid) : null,
+                rs.getString("target_name"),
+                TransactionType.valueOf(rs.getString("transaction_type")),
+                new BigDecimal(rs.getString("amount")),
+                new BigDecimal(rs.getString("commission"))
+        );
+    }
+}
@@ -1,9 +1,9 @@
 package ru.corearchitect.coreeconomy.storage;
 
 import org.bukkit.configuration.file.FileConfiguration;
+import ru.corearchitect.coreeconomy.model.Money;
 import ru.corearchitect.coreeconomy.model.TransactionRecord;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -11,21 +11,30 @@ import java.util.concurrent.CompletableFuture;
 
 public interface StorageProvider {
     void createAccount(UUID uuid);
+    void loadAccount(UUID uuid);
+    void unloadAccount(UUID uuid);
     boolean hasAccount(UUID uuid);
-    BigDecimal getBalance(UUID uuid);
-    void setBalance(UUID uuid, BigDecimal amount);
+    Money getBalance(UUID uuid);
+    void setBalance(UUID uuid, Money amount);
     boolean isFrozen(UUID uuid);
     void setFrozen(UUID uuid, boolean frozen);
     boolean getScoreboardState(UUID uuid);
     void setScoreboardState(UUID uuid, boolean enabled);
-    Map<UUID, BigDecimal> getAllBalances();
-    void addCommission(BigDecimal amount);
-    BigDecimal getTotalCommission();
-    BigDecimal calculateTotalBalance();
+    Map<UUID, Money> getAllBalances();
+    void saveName(UUID uuid, String name);
+    String loadName(UUID uuid);
+    UUID loadUuid(String name);
+    void addCommission(Money amount);
+    Money getTotalCommission();
+    Money calculateTotalBalance();
     void saveData();
     void close();
     boolean migrateFrom(FileConfiguration oldConfig);
-    void logTransaction(TransactionRecord record);
-    CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, int page);
+    int countAccounts();
+    AccountBatch exportAccounts(long cursor, int limit);
+    void importAccounts(List<AccountRecord> records, boolean overwrite);
+    List<TransactionRecord> exportTransactions(long afterId, int limit);
+    void logTransactions(List<TransactionRecord> records);
+    CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, long cursorId, boolean older, int limit);
     CompletableFuture<Integer> countPlayerHistory(UUID playerUuid);
 }
\ No newline at end of file
@@ -0,0 +1,148 @@
+package ru.corearchitect.coreeconomy.storage;
+
+import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.TransactionRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TransactionJournal {
+
+    private static final long BACKPRESSURE_TIMEOUT_MS = 1000L;
+
+    private final CoreEconomy plugin;
+    private volatile StorageProvider storageProvider;
+    private final BlockingQueue<TransactionRecord> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final Thread writerThread;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private volatile boolean running = true;
+
+    public TransactionJournal(CoreEconomy plugin, StorageProvider storageProvider) {
+        this.plugin = plugin;
+        this.storageProvider = storageProvider;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, plugin.getConfigManager().getJournalQueueSize()));
+        this.batchSize = Math.max(1, plugin.getConfigManager().getJournalBatchSize());
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, plugin.getConfigManager().getJournalMaxDelayMillis()));
+        this.writerThread = new Thread(this::runWriter, "CoreEconomy-Journal");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public void append(TransactionRecord record) {
+        if (!running) {
+            writeBatch(Collections.singletonList(record));
+            return;
+        }
+        try {
+            if (queue.offer(record, BACKPRESSURE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long count = overflowed.incrementAndGet();
+        if (count == 1 || count % 1000 == 0) {
+            plugin.getLogger().warning("Transaction journal queue is full (" + count + " overflows so far), writing on the calling thread.");
+        }
+        writeBatch(Collections.singletonList(record));
+    }
+
+    public void appendAll(List<TransactionRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (!running || records.size() >= batchSize) {
+            writeBatch(records);
+            return;
+        }
+        for (TransactionRecord record : records) {
+            append(record);
+        }
+    }
+
+    private void runWriter() {
+        List<TransactionRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                TransactionRecord first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    TransactionRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+                break;
+            } catch (RuntimeException e) {
+                plugin.getLogger().severe("Transaction journal writer failed to write a batch!");
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<TransactionRecord> batch) {
+        storageProvider.logTransactions(batch);
+        written.addAndGet(batch.size());
+    }
+
+    public void setStorageProvider(StorageProvider storageProvider) {
+        this.storageProvider = storageProvider;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getOverflowCount() {
+        return overflowed.get();
+    }
+
+    public void close() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<TransactionRecord> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            writeBatch(remaining);
+        }
+    }
+}
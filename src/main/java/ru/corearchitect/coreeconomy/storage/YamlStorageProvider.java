@@ -4,34 +4,75 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import ru.corearchitect.coreeconomy.CoreEconomy;
+import ru.corearchitect.coreeconomy.model.Money;
 import ru.corearchitect.coreeconomy.model.TransactionRecord;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class YamlStorageProvider implements StorageProvider {
 
+    public static final String DATA_FILE_NAME = "balances.yml";
+    public static final String CHANGE_LOG_FILE_NAME = "balances.changes.log";
+
     private final CoreEconomy plugin;
     private final File dataFile;
-    private final Map<UUID, BigDecimal> balances = new ConcurrentHashMap<>();
+    private final File changeLogFile;
+    private final int compactThreshold;
+    private final Map<UUID, Money> balances = new ConcurrentHashMap<>();
     private final Map<UUID, Boolean> frozenAccounts = new ConcurrentHashMap<>();
     private final Map<UUID, Boolean> scoreboardStates = new ConcurrentHashMap<>();
-    private BigDecimal totalCommission = BigDecimal.ZERO;
+    private final Map<UUID, String> names = new ConcurrentHashMap<>();
+    private final Map<String, UUID> uuidsByName = new ConcurrentHashMap<>();
+    private final AtomicLong totalCommission = new AtomicLong();
+    private final Set<UUID> dirtyAccounts = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> dirtyNames = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean commissionDirty = new AtomicBoolean();
+    private final Object saveLock = new Object();
+    private int loggedChanges;
+    private final Map<UUID, Long> exportKeys = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, UUID> exportOrder = new ConcurrentSkipListMap<>();
+    private final AtomicLong exportSequence = new AtomicLong();
 
     public YamlStorageProvider(CoreEconomy plugin) {
         this.plugin = plugin;
-        this.dataFile = new File(plugin.getDataFolder(), "balances.yml");
+        this.dataFile = new File(plugin.getDataFolder(), DATA_FILE_NAME);
+        this.changeLogFile = new File(plugin.getDataFolder(), CHANGE_LOG_FILE_NAME);
+        this.compactThreshold = Math.max(1, plugin.getConfigManager().getYamlCompactThreshold());
         loadData();
+        replayChangeLog();
+        if (loggedChanges > 0) {
+            synchronized (saveLock) {
+                compact();
+            }
+        }
     }
 
-    private synchronized void loadData() {
+    private void loadData() {
         if (!dataFile.exists()) {
             return;
         }
@@ -40,17 +81,20 @@ public class YamlStorageProvider implements StorageProvider {
         balances.clear();
         frozenAccounts.clear();
         scoreboardStates.clear();
+        names.clear();
+        uuidsByName.clear();
 
-        this.totalCommission = new BigDecimal(config.getString("economy_stats.total_commission", "0.0"));
+        this.totalCommission.set(Money.parse(config.getString("economy_stats.total_commission", "0.0")).getMinorUnits());
 
         ConfigurationSection balancesSection = config.getConfigurationSection("balances");
         if (balancesSection != null) {
             balancesSection.getKeys(false).forEach(key -> {
                 try {
                     UUID uuid = UUID.fromString(key);
-                    BigDecimal balance = new BigDecimal(balancesSection.getString(key, "0"));
+                    Money balance = Money.parse(balancesSection.getString(key, "0"));
                     balances.put(uuid, balance);
-                } catch (IllegalArgumentException ignored) {}
+                    trackExport(uuid);
+                } catch (IllegalArgumentException | ArithmeticException ignored) {}
             });
         }
 
@@ -75,32 +119,210 @@ public class YamlStorageProvider implements StorageProvider {
                 } catch (IllegalArgumentException ignored) {}
             });
         }
+
+        ConfigurationSection namesSection = config.getConfigurationSection("names");
+        if (namesSection != null) {
+            namesSection.getKeys(false).forEach(key -> {
+                try {
+                    String name = namesSection.getString(key);
+                    if (name != null) {
+                        putName(UUID.fromString(key), name);
+                    }
+                } catch (IllegalArgumentException ignored) {}
+            });
+        }
+    }
+
+    private void replayChangeLog() {
+        if (!changeLogFile.exists()) {
+            return;
+        }
+        int replayed = 0;
+        try {
+            String content = new String(Files.readAllBytes(changeLogFile.toPath()), StandardCharsets.UTF_8);
+            int end = content.lastIndexOf('\n') + 1;
+            if (end < content.length()) {
+                plugin.getLogger().warning("Ignoring an incomplete trailing entry in " + CHANGE_LOG_FILE_NAME + " (interrupted write).");
+            }
+            for (String line : content.substring(0, end).split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (!applyChange(line)) {
+                    plugin.getLogger().warning("Stopped replaying " + CHANGE_LOG_FILE_NAME + " at a malformed entry: " + line);
+                    break;
+                }
+                replayed++;
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read " + CHANGE_LOG_FILE_NAME + "!");
+            e.printStackTrace();
+        }
+        loggedChanges = replayed;
+        if (replayed > 0) {
+            plugin.getLogger().info("Replayed " + replayed + " changes from " + CHANGE_LOG_FILE_NAME + ".");
+        }
+    }
+
+    private boolean applyChange(String line) {
+        String[] parts = line.split(" ", 5);
+        try {
+            switch (parts[0]) {
+                case "A":
+                    if (parts.length != 5) {
+                        return false;
+                    }
+                    UUID uuid = UUID.fromString(parts[1]);
+                    balances.put(uuid, Money.ofMinor(Long.parseLong(parts[2])));
+                    trackExport(uuid);
+                    if ("1".equals(parts[3])) {
+                        frozenAccounts.put(uuid, true);
+                    } else {
+                        frozenAccounts.remove(uuid);
+                    }
+                    scoreboardStates.put(uuid, "1".equals(parts[4]));
+                    return true;
+                case "N":
+                    if (parts.length < 3) {
+                        return false;
+                    }
+                    putName(UUID.fromString(parts[1]), line.substring(parts[0].length() + parts[1].length() + 2));
+                    return true;
+                case "C":
+                    if (parts.length != 2) {
+                        return false;
+                    }
+                    totalCommission.set(Long.parseLong(parts[1]));
+                    return true;
+                default:
+                    return false;
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 
     @Override
-    public synchronized void saveData() {
+    public void saveData() {
+        synchronized (saveLock) {
+            List<UUID> accounts = drain(dirtyAccounts);
+            List<UUID> changedNames = drain(dirtyNames);
+            boolean commissionChanged = commissionDirty.getAndSet(false);
+            if (accounts.isEmpty() && changedNames.isEmpty() && !commissionChanged) {
+                return;
+            }
+
+            List<String> lines = new ArrayList<>(accounts.size() + changedNames.size() + 1);
+            for (UUID uuid : accounts) {
+                Money balance = balances.get(uuid);
+                if (balance != null) {
+                    lines.add("A " + uuid + " " + balance.getMinorUnits() + " "
+                            + (frozenAccounts.getOrDefault(uuid, false) ? 1 : 0) + " "
+                            + (getScoreboardState(uuid) ? 1 : 0));
+                }
+            }
+            for (UUID uuid : changedNames) {
+                String name = names.get(uuid);
+                if (name != null) {
+                    lines.add("N " + uuid + " " + name);
+                }
+            }
+            if (commissionChanged) {
+                lines.add("C " + totalCommission.get());
+            }
+
+            try {
+                appendToChangeLog(lines);
+                loggedChanges += lines.size();
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not append to " + CHANGE_LOG_FILE_NAME + "!");
+                e.printStackTrace();
+                dirtyAccounts.addAll(accounts);
+                dirtyNames.addAll(changedNames);
+                if (commissionChanged) {
+                    commissionDirty.set(true);
+                }
+                return;
+            }
+
+            if (loggedChanges >= compactThreshold) {
+                compact();
+            }
+        }
+    }
+
+    private List<UUID> drain(Set<UUID> dirty) {
+        List<UUID> drained = new ArrayList<>(dirty.size());
+        for (UUID uuid : dirty) {
+            if (dirty.remove(uuid)) {
+                drained.add(uuid);
+            }
+        }
+        return drained;
+    }
+
+    private void appendToChangeLog(List<String> lines) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(changeLogFile, true);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+
+    private void compact() {
         FileConfiguration config = new YamlConfiguration();
-        config.set("economy_stats.total_commission", totalCommission.toPlainString());
-        balances.forEach((uuid, balance) -> config.set("balances." + uuid.toString(), balance.toPlainString()));
+        config.set("economy_stats.total_commission", Money.ofMinor(totalCommission.get()).toString());
+        balances.forEach((uuid, balance) -> config.set("balances." + uuid.toString(), balance.toString()));
         frozenAccounts.forEach((uuid, isFrozen) -> {
             if (isFrozen) {
                 config.set("frozen_accounts." + uuid.toString(), true);
             }
         });
         scoreboardStates.forEach((uuid, isEnabled) -> config.set("scoreboard_states." + uuid.toString(), isEnabled));
+        names.forEach((uuid, name) -> config.set("names." + uuid.toString(), name));
 
+        Path target = dataFile.toPath();
+        Path temp = target.resolveSibling(DATA_FILE_NAME + ".tmp");
         try {
-            config.save(dataFile);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(config.saveToString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.deleteIfExists(changeLogFile.toPath());
+            loggedChanges = 0;
         } catch (IOException e) {
-            plugin.getLogger().severe("Could not save data to balances.yml!");
+            plugin.getLogger().severe("Could not write snapshot to " + DATA_FILE_NAME + "!");
             e.printStackTrace();
         }
     }
 
     @Override
     public void createAccount(UUID uuid) {
-        balances.putIfAbsent(uuid, BigDecimal.ZERO);
-        scoreboardStates.putIfAbsent(uuid, plugin.getConfigManager().isScoreboardEnabledByDefault());
+        if (balances.putIfAbsent(uuid, Money.ZERO) == null) {
+            trackExport(uuid);
+            scoreboardStates.putIfAbsent(uuid, plugin.getConfigManager().isScoreboardEnabledByDefault());
+            dirtyAccounts.add(uuid);
+        }
+    }
+
+    @Override
+    public void loadAccount(UUID uuid) {
+    }
+
+    @Override
+    public void unloadAccount(UUID uuid) {
     }
 
     @Override
@@ -109,13 +331,15 @@ public class YamlStorageProvider implements StorageProvider {
     }
 
     @Override
-    public BigDecimal getBalance(UUID uuid) {
-        return balances.getOrDefault(uuid, BigDecimal.ZERO);
+    public Money getBalance(UUID uuid) {
+        return balances.getOrDefault(uuid, Money.ZERO);
     }
 
     @Override
-    public void setBalance(UUID uuid, BigDecimal amount) {
+    public void setBalance(UUID uuid, Money amount) {
         balances.put(uuid, amount);
+        trackExport(uuid);
+        dirtyAccounts.add(uuid);
     }
 
     @Override
@@ -130,6 +354,7 @@ public class YamlStorageProvider implements StorageProvider {
         } else {
             frozenAccounts.remove(uuid);
         }
+        dirtyAccounts.add(uuid);
     }
 
     @Override
@@ -140,31 +365,66 @@ public class YamlStorageProvider implements StorageProvider {
     @Override
     public void setScoreboardState(UUID uuid, boolean enabled) {
         scoreboardStates.put(uuid, enabled);
+        dirtyAccounts.add(uuid);
     }
 
     @Override
-    public Map<UUID, BigDecimal> getAllBalances() {
+    public Map<UUID, Money> getAllBalances() {
         return new ConcurrentHashMap<>(balances);
     }
 
     @Override
-    public synchronized void addCommission(BigDecimal amount) {
-        this.totalCommission = this.totalCommission.add(amount);
+    public void saveName(UUID uuid, String name) {
+        putName(uuid, name);
+        dirtyNames.add(uuid);
+    }
+
+    private void putName(UUID uuid, String name) {
+        String previous = names.put(uuid, name);
+        if (previous != null && !previous.equalsIgnoreCase(name)) {
+            uuidsByName.remove(previous.toLowerCase(Locale.ROOT), uuid);
+        }
+        uuidsByName.put(name.toLowerCase(Locale.ROOT), uuid);
+    }
+
+    @Override
+    public String loadName(UUID uuid) {
+        return names.get(uuid);
+    }
+
+    @Override
+    public UUID loadUuid(String name) {
+        return uuidsByName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void addCommission(Money amount) {
+        totalCommission.addAndGet(amount.getMinorUnits());
+        commissionDirty.set(true);
     }
 
     @Override
-    public BigDecimal getTotalCommission() {
-        return totalCommission;
+    public Money getTotalCommission() {
+        return Money.ofMinor(totalCommission.get());
     }
 
     @Override
-    public BigDecimal calculateTotalBalance() {
-        return balances.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Money calculateTotalBalance() {
+        long total = 0L;
+        for (Money balance : balances.values()) {
+            total = Math.addExact(total, balance.getMinorUnits());
+        }
+        return Money.ofMinor(total);
     }
 
     @Override
     public void close() {
         saveData();
+        synchronized (saveLock) {
+            if (loggedChanges > 0) {
+                compact();
+            }
+        }
     }
 
     @Override
@@ -174,12 +434,71 @@ public class YamlStorageProvider implements StorageProvider {
     }
 
     @Override
-    public void logTransaction(TransactionRecord record) {
+    public int countAccounts() {
+        return balances.size();
+    }
+
+    @Override
+    public AccountBatch exportAccounts(long cursor, int limit) {
+        List<AccountRecord> records = new ArrayList<>(limit);
+        long last = cursor;
+        for (Map.Entry<Long, UUID> entry : exportOrder.tailMap(cursor, false).entrySet()) {
+            if (records.size() >= limit) {
+                return new AccountBatch(records, last);
+            }
+            UUID uuid = entry.getValue();
+            Money balance = balances.get(uuid);
+            if (balance != null) {
+                records.add(new AccountRecord(uuid, balance, isFrozen(uuid), getScoreboardState(uuid), names.get(uuid)));
+            }
+            last = entry.getKey();
+        }
+        return new AccountBatch(records, AccountBatch.END);
+    }
+
+    private void trackExport(UUID uuid) {
+        exportKeys.computeIfAbsent(uuid, key -> {
+            long id = exportSequence.incrementAndGet();
+            exportOrder.put(id, key);
+            return id;
+        });
+    }
+
+    @Override
+    public synchronized void importAccounts(List<AccountRecord> records, boolean overwrite) {
+        for (AccountRecord record : records) {
+            UUID uuid = record.getUuid();
+            if (record.getName() != null && (overwrite || !names.containsKey(uuid))) {
+                saveName(uuid, record.getName());
+            }
+            if (overwrite) {
+                balances.put(uuid, record.getBalance());
+            } else if (balances.putIfAbsent(uuid, record.getBalance()) != null) {
+                continue;
+            }
+            trackExport(uuid);
+            if (record.isFrozen()) {
+                frozenAccounts.put(uuid, true);
+            } else {
+                frozenAccounts.remove(uuid);
+            }
+            scoreboardStates.put(uuid, record.isScoreboardEnabled());
+            dirtyAccounts.add(uuid);
+        }
+    }
+
+    @Override
+    public List<TransactionRecord> exportTransactions(long afterId, int limit) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void logTransactions(List<TransactionRecord> records) {
         // Transaction history is not supported for YAML storage.
     }
 
     @Override
-    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, int page) {
+    public CompletableFuture<List<TransactionRecord>> getPlayerHistory(UUID playerUuid, long cursorId, boolean older, int limit) {
         plugin.getLogger().warning("Transaction history is not supported for YAML storage.");
         return CompletableFuture.completedFuture(Collections.emptyList());
     }
@@ -0,0 +1,257 @@
+package ru.corearchitect.coreeconomy.tool;
+
+import ru.corearchitect.coreeconomy.model.LogRecord;
+import ru.corearchitect.coreeconomy.model.Money;
+import ru.corearchitect.coreeconomy.util.LogRecordCodec;
+import ru.corearchitect.coreeconomy.util.NumberFormatter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+public final class TransactionLogReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String USAGE = String.join("\n",
+            "Usage: java -cp CoreEconomy.jar ru.corearchitect.coreeconomy.tool.TransactionLogReader [options] <file|directory>...",
+            "Reads JSONL (.jsonl) and binary (.bin) transaction logs, plain or gzipped.",
+            "Options:",
+            "  --type <TYPE[,TYPE...]>   only these record types (PAY, ADMIN_ADD, FREEZE, ...)",
+            "  --player <uuid|name>      only records where the player is initiator or target",
+            "  --from <date[Ttime]>      only records at or after this local time (2024-05-01 or 2024-05-01T12:30)",
+            "  --to <date[Ttime]>        only records before this local time",
+            "  --min-amount <amount>     only records with at least this amount, e.g. 1000.50",
+            "  --output <text|jsonl>     output format, text by default",
+            "  --summary                 print only the totals");
+
+    private final Set<String> types = new HashSet<>();
+    private UUID playerUuid;
+    private String playerName;
+    private long fromMillis = Long.MIN_VALUE;
+    private long toMillis = Long.MAX_VALUE;
+    private long minAmount = Long.MIN_VALUE;
+    private boolean summaryOnly;
+    private long scanned;
+    private long matched;
+    private long totalAmount;
+    private long totalCommission;
+
+    private TransactionLogReader() {
+    }
+
+    public static void main(String[] args) {
+        TransactionLogReader reader = new TransactionLogReader();
+        LogRecordCodec.Format output = LogRecordCodec.Format.TEXT;
+        List<File> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--type":
+                        for (String type : value(args, ++i).split(",")) {
+                            reader.types.add(type.trim().toUpperCase(Locale.ROOT));
+                        }
+                        break;
+                    case "--player":
+                        String player = value(args, ++i);
+                        if (player.length() == 36) {
+                            reader.playerUuid = UUID.fromString(player);
+                        } else {
+                            reader.playerName = player;
+                        }
+                        break;
+                    case "--from":
+                        reader.fromMillis = parseTime(value(args, ++i));
+                        break;
+                    case "--to":
+                        reader.toMillis = parseTime(value(args, ++i));
+                        break;
+                    case "--min-amount":
+                        reader.minAmount = Money.parse(value(args, ++i)).getMinorUnits();
+                        break;
+                    case "--output":
+                        output = LogRecordCodec.Format.valueOf(value(args, ++i).toUpperCase(Locale.ROOT));
+                        if (output == LogRecordCodec.Format.BINARY) {
+                            throw new IllegalArgumentException("binary output is not supported");
+                        }
+                        break;
+                    case "--summary":
+                        reader.summaryOnly = true;
+                        break;
+                    case "--help":
+                    case "-h":
+                        System.out.println(USAGE);
+                        return;
+                    default:
+                        collect(new File(arg), files);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        if (files.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        LogRecordCodec codec = new LogRecordCodec(output, ZoneId.systemDefault());
+        OutputStream out = new BufferedOutputStream(System.out, BUFFER_SIZE);
+        boolean failed = false;
+        try {
+            for (File file : files) {
+                try {
+                    reader.read(file, codec, out);
+                } catch (IOException | RuntimeException e) {
+                    out.flush();
+                    System.err.println("Failed to read " + file + ": " + e.getMessage());
+                    failed = true;
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to write output: " + e.getMessage());
+            System.exit(1);
+        }
+
+        System.err.println("Scanned " + reader.scanned + " records, matched " + reader.matched
+                + ", amount " + NumberFormatter.format(Money.ofMinor(reader.totalAmount))
+                + ", commission " + NumberFormatter.format(Money.ofMinor(reader.totalCommission)));
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(args[index - 1] + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static long parseTime(String value) {
+        LocalDateTime time = value.indexOf('T') > 0 ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void collect(File file, List<File> files) {
+        if (!file.isDirectory()) {
+            if (!file.exists()) {
+                throw new IllegalArgumentException(file + " does not exist");
+            }
+            files.add(file);
+            return;
+        }
+        File[] children = file.listFiles((dir, name) -> {
+            LogRecordCodec.Format format = LogRecordCodec.Format.fromFileName(name);
+            return name.startsWith("transactions") && format != null && format != LogRecordCodec.Format.TEXT;
+        });
+        if (children != null) {
+            Arrays.sort(children, Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+            files.addAll(Arrays.asList(children));
+        }
+    }
+
+    private void read(File file, LogRecordCodec codec, OutputStream out) throws IOException {
+        LogRecordCodec.Format format = LogRecordCodec.Format.fromFileName(file.getName());
+        if (format == null || format == LogRecordCodec.Format.TEXT) {
+            throw new IOException("only .jsonl and .bin logs can be read, set transaction-log.format in config.yml");
+        }
+
+        try (InputStream in = open(file)) {
+            if (format == LogRecordCodec.Format.BINARY) {
+                LogRecordCodec.BinaryReader binary = new LogRecordCodec.BinaryReader(in);
+                LogRecord record;
+                while ((record = binary.next()) != null) {
+                    accept(record, codec, out);
+                }
+                if (binary.isTruncated()) {
+                    System.err.println("Warning: " + file + " ends with a truncated record, stopped at the last complete one.");
+                }
+                return;
+            }
+
+            BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+            String line = lines.readLine();
+            while (line != null) {
+                String next = lines.readLine();
+                if (!line.isEmpty()) {
+                    LogRecord record;
+                    try {
+                        record = LogRecordCodec.parseJson(line);
+                    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                        if (next != null) {
+                            throw e;
+                        }
+                        System.err.println("Warning: " + file + " ends with a truncated record, stopped at the last complete one.");
+                        return;
+                    }
+                    accept(record, codec, out);
+                }
+                line = next;
+            }
+        }
+    }
+
+    private static InputStream open(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        if (file.getName().endsWith(".gz")) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+        return new BufferedInputStream(in, BUFFER_SIZE);
+    }
+
+    private void accept(LogRecord record, LogRecordCodec codec, OutputStream out) throws IOException {
+        scanned++;
+        if (!matches(record)) {
+            return;
+        }
+        matched++;
+        totalAmount += record.getAmount();
+        totalCommission += record.getCommission();
+        if (!summaryOnly) {
+            codec.encode(record, out);
+        }
+    }
+
+    private boolean matches(LogRecord record) {
+        if (record.getTimestamp() < fromMillis || record.getTimestamp() >= toMillis) {
+            return false;
+        }
+        if (!types.isEmpty() && !types.contains(record.getType())) {
+            return false;
+        }
+        if (record.getAmount() < minAmount) {
+            return false;
+        }
+        if (playerUuid != null) {
+            return playerUuid.equals(record.getInitiatorUuid()) || playerUuid.equals(record.getTargetUuid());
+        }
+        if (playerName != null) {
+            return playerName.equalsIgnoreCase(record.getInitiatorName()) || playerName.equalsIgnoreCase(record.getTargetName());
+        }
+        return true;
+    }
+}
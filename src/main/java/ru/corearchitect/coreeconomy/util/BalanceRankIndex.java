@@ -0,0 +1,267 @@
+package ru.corearchitect.coreeconomy.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public final class BalanceRankIndex {
+
+    private static final int MAX_LEVEL = 32;
+    private static final int LEVEL_PROBABILITY = 4;
+
+    private final Node head = new Node(null, Long.MAX_VALUE, MAX_LEVEL);
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int level = 1;
+    private int length;
+
+    public void update(UUID uuid, long balance) {
+        lock.writeLock().lock();
+        try {
+            Node existing = nodes.get(uuid);
+            if (existing != null) {
+                if (existing.balance == balance) {
+                    return;
+                }
+                delete(existing.balance, uuid);
+            }
+            nodes.put(uuid, insert(balance, uuid));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putIfAbsent(UUID uuid, long balance) {
+        lock.writeLock().lock();
+        try {
+            if (!nodes.containsKey(uuid)) {
+                nodes.put(uuid, insert(balance, uuid));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID uuid) {
+        lock.writeLock().lock();
+        try {
+            Node existing = nodes.remove(uuid);
+            if (existing != null) {
+                delete(existing.balance, uuid);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < MAX_LEVEL; i++) {
+                head.next[i] = null;
+                head.span[i] = 0;
+            }
+            nodes.clear();
+            level = 1;
+            length = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int rankOf(UUID uuid) {
+        lock.readLock().lock();
+        try {
+            Node target = nodes.get(uuid);
+            if (target == null) {
+                return -1;
+            }
+            int rank = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && !isBefore(target.balance, uuid, x.next[i])) {
+                    rank += x.span[i];
+                    x = x.next[i];
+                }
+                if (x == target) {
+                    return rank;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Entry getByRank(int rank) {
+        lock.readLock().lock();
+        try {
+            if (rank < 1 || rank > length) {
+                return null;
+            }
+            int traversed = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+                if (traversed == rank) {
+                    return new Entry(x.uuid, x.balance);
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Entry> top(int limit) {
+        lock.readLock().lock();
+        try {
+            List<Entry> result = new ArrayList<>(Math.max(0, Math.min(limit, length)));
+            Node x = head.next[0];
+            while (x != null && result.size() < limit) {
+                result.add(new Entry(x.uuid, x.balance));
+                x = x.next[0];
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Node insert(long balance, UUID uuid) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && isBefore(x.next[i], balance, uuid)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = length;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(uuid, balance, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+        return node;
+    }
+
+    private void delete(long balance, UUID uuid) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && isBefore(x.next[i], balance, uuid)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+
+        x = x.next[0];
+        if (x == null || x.balance != balance || !x.uuid.equals(uuid)) {
+            return;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    private static boolean isBefore(Node node, long balance, UUID uuid) {
+        if (node.balance != balance) {
+            return node.balance > balance;
+        }
+        return node.uuid.compareTo(uuid) < 0;
+    }
+
+    private static boolean isBefore(long balance, UUID uuid, Node node) {
+        if (node.balance != balance) {
+            return balance > node.balance;
+        }
+        return uuid.compareTo(node.uuid) < 0;
+    }
+
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (nodeLevel < MAX_LEVEL && random.nextInt(LEVEL_PROBABILITY) == 0) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+
+    public static final class Entry {
+        private final UUID uuid;
+        private final long balance;
+
+        Entry(UUID uuid, long balance) {
+            this.uuid = uuid;
+            this.balance = balance;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public long getBalance() {
+            return balance;
+        }
+    }
+
+    private static final class Node {
+        final UUID uuid;
+        final long balance;
+        final Node[] next;
+        final int[] span;
+
+        Node(UUID uuid, long balance, int nodeLevel) {
+            this.uuid = uuid;
+            this.balance = balance;
+            this.next = new Node[nodeLevel];
+            this.span = new int[nodeLevel];
+        }
+    }
+}
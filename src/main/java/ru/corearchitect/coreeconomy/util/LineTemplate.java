@@ -0,0 +1,85 @@
+package ru.corearchitect.coreeconomy.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class LineTemplate {
+
+    public static final int PLAYER = 0;
+    public static final int BALANCE = 1;
+    public static final int SYMBOL = 2;
+
+    private static final String[] PLACEHOLDERS = {"{player}", "{balance}", "{symbol}"};
+
+    private final String[] literals;
+    private final int[] placeholders;
+    private final int literalLength;
+    private final boolean usesBalance;
+
+    private LineTemplate(String[] literals, int[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+        boolean balance = false;
+        for (int placeholder : placeholders) {
+            balance |= placeholder == BALANCE;
+        }
+        this.usesBalance = balance;
+    }
+
+    public static LineTemplate compile(String line) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> placeholders = new ArrayList<>();
+        int start = 0;
+        int index = 0;
+        while (index < line.length()) {
+            int found = -1;
+            if (line.charAt(index) == '{') {
+                for (int i = 0; i < PLACEHOLDERS.length; i++) {
+                    if (line.startsWith(PLACEHOLDERS[i], index)) {
+                        found = i;
+                        break;
+                    }
+                }
+            }
+            if (found < 0) {
+                index++;
+                continue;
+            }
+            literals.add(line.substring(start, index));
+            placeholders.add(found);
+            index += PLACEHOLDERS[found].length();
+            start = index;
+        }
+        literals.add(line.substring(start));
+
+        int[] codes = new int[placeholders.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = placeholders.get(i);
+        }
+        return new LineTemplate(literals.toArray(new String[0]), codes);
+    }
+
+    public boolean usesBalance() {
+        return usesBalance;
+    }
+
+    public String render(String... values) {
+        if (placeholders.length == 0) {
+            return literals[0];
+        }
+        int length = literalLength;
+        for (int placeholder : placeholders) {
+            length += values[placeholder].length();
+        }
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]).append(values[placeholders[i]]);
+        }
+        return builder.append(literals[placeholders.length]).toString();
+    }
+}
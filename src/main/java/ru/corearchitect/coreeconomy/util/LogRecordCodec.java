@@ -0,0 +1,498 @@
+package ru.corearchitect.coreeconomy.util;
+
+import ru.corearchitect.coreeconomy.model.LogRecord;
+import ru.corearchitect.coreeconomy.model.Money;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+
+public final class LogRecordCodec {
+
+    public enum Format {
+        TEXT("log"),
+        JSONL("jsonl"),
+        BINARY("bin");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromFileName(String fileName) {
+            String name = fileName.endsWith(".gz") ? fileName.substring(0, fileName.length() - 3) : fileName;
+            for (Format format : values()) {
+                if (name.endsWith("." + format.extension)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+
+        public static Format fromConfig(String value) {
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return TEXT;
+            }
+        }
+    }
+
+    private static final byte[] BINARY_MAGIC = {'C', 'E', 'L', 'G', 1};
+    private static final int NULL_STRING = 0xFFFF;
+    private static final int MAX_RECORD_BYTES = 1024 * 1024;
+    private static final int FLAG_INITIATOR = 1;
+    private static final int FLAG_TARGET = 2;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Format format;
+    private final ZoneId zone;
+    private final StringBuilder text = new StringBuilder(256);
+    private byte[] bytes = new byte[512];
+    private int length;
+    private long cachedSecond = Long.MIN_VALUE;
+    private String cachedPrefix;
+
+    public LogRecordCodec(Format format, ZoneId zone) {
+        this.format = format;
+        this.zone = zone;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public byte[] header() {
+        return format == Format.BINARY ? BINARY_MAGIC.clone() : new byte[0];
+    }
+
+    public int encode(LogRecord record, OutputStream out) throws IOException {
+        length = 0;
+        switch (format) {
+            case JSONL:
+                text.setLength(0);
+                appendJson(record);
+                text.append('\n');
+                putUtf8(text);
+                break;
+            case BINARY:
+                putBinary(record);
+                break;
+            default:
+                text.setLength(0);
+                appendText(record);
+                text.append('\n');
+                putUtf8(text);
+                break;
+        }
+        out.write(bytes, 0, length);
+        return length;
+    }
+
+    private void appendText(LogRecord record) {
+        long second = Math.floorDiv(record.getTimestamp(), 1000L);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedPrefix = "[" + TIMESTAMP.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getTimestamp()), zone)) + "] ";
+        }
+        text.append(cachedPrefix).append('[').append(record.getType()).append("] ");
+
+        if (LogRecord.PAY.equals(record.getType())) {
+            text.append(record.getInitiatorName()).append(" -> ").append(record.getTargetName())
+                    .append(" | Amount: ").append(NumberFormatter.format(Money.ofMinor(record.getAmount())))
+                    .append(" | Commission: ").append(NumberFormatter.format(Money.ofMinor(record.getCommission())))
+                    .append(" | Total: ").append(NumberFormatter.format(Money.ofMinor(record.getAmount() + record.getCommission())));
+            return;
+        }
+        if (record.getTargetUuid() == null) {
+            text.append("Admin: ").append(record.getInitiatorName());
+            if (record.getDetails() != null) {
+                text.append(" | ").append(record.getDetails());
+            }
+            return;
+        }
+        text.append("Admin: ").append(record.getInitiatorName())
+                .append(" | Target: ").append(record.getTargetName()).append(" (").append(record.getTargetUuid()).append(')');
+        if (record.getType().startsWith("ADMIN_")) {
+            text.append(" | Amount: ").append(NumberFormatter.format(Money.ofMinor(record.getAmount())));
+        }
+    }
+
+    private void appendJson(LogRecord record) {
+        text.append("{\"ts\":").append(record.getTimestamp());
+        appendJsonField("type", record.getType());
+        if (record.getInitiatorUuid() != null) {
+            appendJsonField("initiator", record.getInitiatorUuid().toString());
+        }
+        appendJsonField("initiatorName", record.getInitiatorName());
+        if (record.getTargetUuid() != null) {
+            appendJsonField("target", record.getTargetUuid().toString());
+        }
+        appendJsonField("targetName", record.getTargetName());
+        text.append(",\"amount\":").append(record.getAmount());
+        text.append(",\"commission\":").append(record.getCommission());
+        appendJsonField("details", record.getDetails());
+        text.append('}');
+    }
+
+    private void appendJsonField(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        text.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    text.append("\\\"");
+                    break;
+                case '\\':
+                    text.append("\\\\");
+                    break;
+                case '\n':
+                    text.append("\\n");
+                    break;
+                case '\r':
+                    text.append("\\r");
+                    break;
+                case '\t':
+                    text.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        text.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        text.append(c);
+                    }
+            }
+        }
+        text.append('"');
+    }
+
+    private void putBinary(LogRecord record) {
+        length = 4;
+        putLong(record.getTimestamp());
+        putString(record.getType());
+        int flags = (record.getInitiatorUuid() != null ? FLAG_INITIATOR : 0) | (record.getTargetUuid() != null ? FLAG_TARGET : 0);
+        ensure(1);
+        bytes[length++] = (byte) flags;
+        if (record.getInitiatorUuid() != null) {
+            putLong(record.getInitiatorUuid().getMostSignificantBits());
+            putLong(record.getInitiatorUuid().getLeastSignificantBits());
+        }
+        putString(record.getInitiatorName());
+        if (record.getTargetUuid() != null) {
+            putLong(record.getTargetUuid().getMostSignificantBits());
+            putLong(record.getTargetUuid().getLeastSignificantBits());
+        }
+        putString(record.getTargetName());
+        putLong(record.getAmount());
+        putLong(record.getCommission());
+        putString(record.getDetails());
+
+        int payload = length - 4;
+        bytes[0] = (byte) (payload >>> 24);
+        bytes[1] = (byte) (payload >>> 16);
+        bytes[2] = (byte) (payload >>> 8);
+        bytes[3] = (byte) payload;
+    }
+
+    private void putLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void putString(String value) {
+        ensure(2);
+        int start = length;
+        length += 2;
+        int stringLength;
+        if (value == null) {
+            stringLength = NULL_STRING;
+        } else {
+            putUtf8(value);
+            stringLength = length - start - 2;
+            if (stringLength >= NULL_STRING) {
+                int end = start + 2 + NULL_STRING - 1;
+                while ((bytes[end] & 0xC0) == 0x80) {
+                    end--;
+                }
+                length = end;
+                stringLength = end - start - 2;
+            }
+        }
+        bytes[start] = (byte) (stringLength >>> 8);
+        bytes[start + 1] = (byte) stringLength;
+    }
+
+    private void putUtf8(CharSequence value) {
+        ensure(value.length() * 3);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[length++] = (byte) (0xC0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                bytes[length++] = '?';
+            } else {
+                bytes[length++] = (byte) (0xE0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    public static final class BinaryReader {
+        private final DataInputStream in;
+        private byte[] buffer = new byte[512];
+        private boolean truncated;
+
+        public BinaryReader(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            byte[] header = new byte[BINARY_MAGIC.length];
+            try {
+                this.in.readFully(header);
+            } catch (EOFException e) {
+                return;
+            }
+            if (!Arrays.equals(header, BINARY_MAGIC)) {
+                throw new IOException("Not a CoreEconomy binary transaction log");
+            }
+        }
+
+        public LogRecord next() throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                return null;
+            }
+            int payload;
+            try {
+                payload = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+            } catch (EOFException e) {
+                truncated = true;
+                return null;
+            }
+            if (payload < 0 || payload > MAX_RECORD_BYTES) {
+                throw new IOException("Corrupt record length " + payload);
+            }
+            if (buffer.length < payload) {
+                buffer = new byte[payload];
+            }
+            try {
+                in.readFully(buffer, 0, payload);
+            } catch (EOFException e) {
+                truncated = true;
+                return null;
+            }
+
+            ByteBuffer data = ByteBuffer.wrap(buffer, 0, payload);
+            long timestamp = data.getLong();
+            String type = getString(data);
+            int flags = data.get();
+            UUID initiator = (flags & FLAG_INITIATOR) != 0 ? new UUID(data.getLong(), data.getLong()) : null;
+            String initiatorName = getString(data);
+            UUID target = (flags & FLAG_TARGET) != 0 ? new UUID(data.getLong(), data.getLong()) : null;
+            String targetName = getString(data);
+            long amount = data.getLong();
+            long commission = data.getLong();
+            String details = getString(data);
+            return new LogRecord(timestamp, type, initiator, initiatorName, target, targetName, amount, commission, details);
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        private String getString(ByteBuffer data) {
+            int stringLength = data.getShort() & 0xFFFF;
+            if (stringLength == NULL_STRING) {
+                return null;
+            }
+            String value = new String(buffer, data.position(), stringLength, StandardCharsets.UTF_8);
+            data.position(data.position() + stringLength);
+            return value;
+        }
+    }
+
+    public static LogRecord parseJson(String line) {
+        JsonCursor cursor = new JsonCursor(line);
+        long timestamp = 0L;
+        String type = null;
+        UUID initiator = null;
+        String initiatorName = null;
+        UUID target = null;
+        String targetName = null;
+        long amount = 0L;
+        long commission = 0L;
+        String details = null;
+
+        cursor.expect('{');
+        if (!cursor.tryConsume('}')) {
+            do {
+                String key = cursor.readString();
+                cursor.expect(':');
+                switch (key) {
+                    case "ts":
+                        timestamp = cursor.readLong();
+                        break;
+                    case "type":
+                        type = cursor.readString();
+                        break;
+                    case "initiator":
+                        initiator = UUID.fromString(cursor.readString());
+                        break;
+                    case "initiatorName":
+                        initiatorName = cursor.readString();
+                        break;
+                    case "target":
+                        target = UUID.fromString(cursor.readString());
+                        break;
+                    case "targetName":
+                        targetName = cursor.readString();
+                        break;
+                    case "amount":
+                        amount = cursor.readLong();
+                        break;
+                    case "commission":
+                        commission = cursor.readLong();
+                        break;
+                    case "details":
+                        details = cursor.readString();
+                        break;
+                    default:
+                        cursor.skipValue();
+                }
+            } while (cursor.tryConsume(','));
+            cursor.expect('}');
+        }
+        return new LogRecord(timestamp, type, initiator, initiatorName, target, targetName, amount, commission, details);
+    }
+
+    private static final class JsonCursor {
+        private final String input;
+        private int position;
+
+        JsonCursor(String input) {
+            this.input = input;
+        }
+
+        void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        boolean tryConsume(char expected) {
+            skipWhitespace();
+            if (position < input.length() && input.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char expected) {
+            if (!tryConsume(expected)) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at " + position + " in: " + input);
+            }
+        }
+
+        long readLong() {
+            skipWhitespace();
+            int start = position;
+            if (position < input.length() && input.charAt(position) == '-') {
+                position++;
+            }
+            while (position < input.length() && Character.isDigit(input.charAt(position))) {
+                position++;
+            }
+            return Long.parseLong(input.substring(start, position));
+        }
+
+        String readString() {
+            expect('"');
+            StringBuilder value = null;
+            int start = position;
+            while (position < input.length()) {
+                char c = input.charAt(position);
+                if (c == '"') {
+                    String result = value == null ? input.substring(start, position) : value.append(input, start, position).toString();
+                    position++;
+                    return result;
+                }
+                if (c == '\\') {
+                    if (value == null) {
+                        value = new StringBuilder();
+                    }
+                    value.append(input, start, position);
+                    char escaped = input.charAt(position + 1);
+                    switch (escaped) {
+                        case 'n':
+                            value.append('\n');
+                            break;
+                        case 'r':
+                            value.append('\r');
+                            break;
+                        case 't':
+                            value.append('\t');
+                            break;
+                        case 'u':
+                            value.append((char) Integer.parseInt(input.substring(position + 2, position + 6), 16));
+                            position += 4;
+                            break;
+                        default:
+                            value.append(escaped);
+                    }
+                    position += 2;
+                    start = position;
+                    continue;
+                }
+                position++;
+            }
+            throw new IllegalArgumentException("Unterminated string in: " + input);
+        }
+
+        void skipValue() {
+            skipWhitespace();
+            if (position < input.length() && input.charAt(position) == '"') {
+                readString();
+                return;
+            }
+            while (position < input.length() && input.charAt(position) != ',' && input.charAt(position) != '}') {
+                position++;
+            }
+        }
+    }
+}
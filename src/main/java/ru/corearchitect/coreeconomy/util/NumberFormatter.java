@@ -1,5 +1,7 @@
 package ru.corearchitect.coreeconomy.util;
 
+import ru.corearchitect.coreeconomy.model.Money;
+
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -23,4 +25,29 @@ public final class NumberFormatter {
         }
         return FORMATTER.get().format(amount);
     }
-}
\ No newline at end of file
+
+    public static String format(Money amount) {
+        if (amount == null) {
+            return "0,00";
+        }
+        long minor = amount.getMinorUnits();
+        boolean negative = minor < 0L;
+        String digits = Long.toString(minor).substring(negative ? 1 : 0);
+        if (digits.length() <= Money.SCALE) {
+            digits = "000".substring(0, Money.SCALE + 1 - digits.length()) + digits;
+        }
+        int integerLength = digits.length() - Money.SCALE;
+        StringBuilder builder = new StringBuilder(digits.length() + integerLength / 3 + 2);
+        if (negative) {
+            builder.append('-');
+        }
+        for (int i = 0; i < integerLength; i++) {
+            if (i > 0 && (integerLength - i) % 3 == 0) {
+                builder.append('.');
+            }
+            builder.append(digits.charAt(i));
+        }
+        builder.append(',').append(digits, integerLength, digits.length());
+        return builder.toString();
+    }
+}
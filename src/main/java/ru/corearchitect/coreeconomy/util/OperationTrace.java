@@ -0,0 +1,196 @@
+package ru.corearchitect.coreeconomy.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+public final class OperationTrace {
+
+    private static final int MAX_SPANS = 512;
+    private static final int MAX_NOTES = 16;
+    private static final ThreadLocal<OperationTrace> CURRENT = new ThreadLocal<>();
+    private static final Span NOOP = new Span(null, null, 0L);
+    private static volatile boolean enabled;
+
+    private final String operation;
+    private final String threadName;
+    private final long queuedAt;
+    private final long startedAtMillis;
+    private final Span root;
+    private final Deque<Span> open = new ArrayDeque<>();
+    private int spanCount;
+    private int droppedSpans;
+
+    private OperationTrace(String operation, long queuedAt) {
+        this.operation = operation;
+        this.threadName = Thread.currentThread().getName();
+        this.queuedAt = queuedAt;
+        this.startedAtMillis = System.currentTimeMillis();
+        this.root = new Span(this, operation, System.nanoTime());
+        this.open.push(root);
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean isActive() {
+        return enabled && CURRENT.get() != null;
+    }
+
+    public static OperationTrace begin(String operation, long queuedAt) {
+        if (!enabled || CURRENT.get() != null) {
+            return null;
+        }
+        OperationTrace trace = new OperationTrace(operation, queuedAt);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static Span span(String name) {
+        if (!enabled) {
+            return NOOP;
+        }
+        OperationTrace trace = CURRENT.get();
+        return trace != null ? trace.open(name) : NOOP;
+    }
+
+    public static Span span(String prefix, String name) {
+        if (!enabled) {
+            return NOOP;
+        }
+        OperationTrace trace = CURRENT.get();
+        return trace != null ? trace.open(prefix + name) : NOOP;
+    }
+
+    public static void annotate(String note) {
+        if (!enabled) {
+            return;
+        }
+        OperationTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.open.peek().note(note);
+        }
+    }
+
+    public void end() {
+        long now = System.nanoTime();
+        while (!open.isEmpty()) {
+            open.pop().end = now;
+        }
+        CURRENT.remove();
+    }
+
+    private Span open(String name) {
+        if (spanCount >= MAX_SPANS) {
+            droppedSpans++;
+            return NOOP;
+        }
+        spanCount++;
+        Span span = new Span(this, name, System.nanoTime());
+        open.peek().children.add(span);
+        open.push(span);
+        return span;
+    }
+
+    private void close(Span span) {
+        span.end = System.nanoTime();
+        while (!open.isEmpty() && open.peek() != root) {
+            if (open.pop() == span) {
+                return;
+            }
+        }
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public long getStartedAtMillis() {
+        return startedAtMillis;
+    }
+
+    public long getQueueWaitNanos() {
+        return queuedAt > 0 ? Math.max(0L, root.start - queuedAt) : 0L;
+    }
+
+    public long getTotalNanos() {
+        return getQueueWaitNanos() + root.getDurationNanos();
+    }
+
+    public int getDroppedSpans() {
+        return droppedSpans;
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    public static final class Span implements AutoCloseable {
+        private final OperationTrace trace;
+        private final String name;
+        private final long start;
+        private final List<Span> children = new ArrayList<>(0);
+        private List<String> notes = Collections.emptyList();
+        private int droppedNotes;
+        private long end;
+
+        private Span(OperationTrace trace, String name, long start) {
+            this.trace = trace;
+            this.name = name;
+            this.start = start;
+        }
+
+        private void note(String note) {
+            if (notes.isEmpty()) {
+                notes = new ArrayList<>(2);
+            }
+            if (notes.size() < MAX_NOTES) {
+                notes.add(note);
+            } else {
+                droppedNotes++;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getOffsetNanos() {
+            return start - trace.root.start;
+        }
+
+        public long getDurationNanos() {
+            return end - start;
+        }
+
+        public List<Span> getChildren() {
+            return children;
+        }
+
+        public List<String> getNotes() {
+            return notes;
+        }
+
+        public int getDroppedNotes() {
+            return droppedNotes;
+        }
+
+        @Override
+        public void close() {
+            if (trace != null && end == 0L) {
+                trace.close(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ru.corearchitect.coreeconomy.util;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+public final class StripedLock {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLock(int stripeCount) {
+        int size = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public int stripeOf(UUID uuid) {
+        int hash = uuid.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public <T> T withLock(UUID uuid, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(uuid)];
+        if (lock.isHeldByCurrentThread()) {
+            lock.lock();
+        } else {
+            try (OperationTrace.Span ignored = OperationTrace.span("lock_wait")) {
+                lock.lock();
+            }
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public <T> T withLocks(UUID first, UUID second, Supplier<T> action) {
+        int a = stripeOf(first);
+        int b = stripeOf(second);
+        if (a == b) {
+            return withLock(first, action);
+        }
+
+        ReentrantLock lower = stripes[Math.min(a, b)];
+        ReentrantLock upper = stripes[Math.max(a, b)];
+        OperationTrace.Span wait = OperationTrace.span("lock_wait");
+        lower.lock();
+        try {
+            upper.lock();
+            wait.close();
+            try {
+                return action.get();
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    public <T> T withLocks(Collection<UUID> uuids, Supplier<T> action) {
+        BitSet indices = new BitSet(stripes.length);
+        for (UUID uuid : uuids) {
+            indices.set(stripeOf(uuid));
+        }
+
+        int[] order = indices.stream().toArray();
+        int locked = 0;
+        try {
+            OperationTrace.Span wait = OperationTrace.span("lock_wait");
+            for (int index : order) {
+                stripes[index].lock();
+                locked++;
+            }
+            wait.close();
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    public <T> T withAllLocks(Supplier<T> action) {
+        int locked = 0;
+        try {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.corearchitect.coreeconomy;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+
+public final class TestEconomyPlugin extends CoreEconomy {
+
+    private TestEconomyPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder) {
+        super(loader, description, dataFolder, new File(dataFolder, "CoreEconomy.jar"));
+    }
+
+    public static TestEconomyPlugin start(File dataFolder) throws IOException {
+        JavaPluginLoader loader = new JavaPluginLoader(TestServer.install());
+        PluginDescriptionFile description = new PluginDescriptionFile("CoreEconomy", "test", CoreEconomy.class.getName());
+
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("data-storage.type", "YAML");
+        config.set("backups.enabled", false);
+        config.save(new File(dataFolder, "config.yml"));
+
+        TestEconomyPlugin plugin = new TestEconomyPlugin(loader, description, dataFolder);
+        plugin.createServices();
+        return plugin;
+    }
+
+    public void stop() {
+        onDisable();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.corearchitect.coreeconomy;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicesManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+final class TestServer {
+
+    private static final Logger LOGGER = Logger.getLogger("CoreEconomy-Test");
+    private static Server server;
+
+    private TestServer() {
+    }
+
+    static synchronized Server install() {
+        if (server == null) {
+            LOGGER.setLevel(Level.WARNING);
+            server = proxy(Server.class, TestServer::handleServer);
+            Bukkit.setServer(server);
+        }
+        return server;
+    }
+
+    private static Object handleServer(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getLogger":
+                return LOGGER;
+            case "getName":
+                return "CoreEconomyTest";
+            case "getVersion":
+            case "getBukkitVersion":
+            case "getMinecraftVersion":
+                return "1.20.1-R0.1-SNAPSHOT";
+            case "isPrimaryThread":
+                return false;
+            default:
+                break;
+        }
+        Class<?> type = method.getReturnType();
+        if (type == PluginManager.class) {
+            return proxy(PluginManager.class, TestServer::handleDefault);
+        }
+        if (type == BukkitScheduler.class) {
+            return proxy(BukkitScheduler.class, TestServer::handleScheduler);
+        }
+        if (type == ServicesManager.class) {
+            return proxy(ServicesManager.class, TestServer::handleDefault);
+        }
+        return handleDefault(proxy, method, args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object handleScheduler(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        boolean immediate = name.equals("runTask") || name.equals("runTaskAsynchronously");
+        if (immediate && args != null && args.length == 2) {
+            if (args[1] instanceof Runnable) {
+                ((Runnable) args[1]).run();
+            } else if (args[1] instanceof Consumer) {
+                ((Consumer<BukkitTask>) args[1]).accept(proxy(BukkitTask.class, TestServer::handleDefault));
+                return null;
+            }
+        }
+        return handleDefault(proxy, method, args);
+    }
+
+    private static Object handleDefault(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return args != null && args.length == 1 && proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Test" + method.getDeclaringClass().getSimpleName();
+            default:
+                break;
+        }
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == List.class || type == Collection.class) {
+            return Collections.emptyList();
+        }
+        if (type == Set.class) {
+            return Collections.emptySet();
+        }
+        if (type == Map.class) {
+            return Collections.emptyMap();
+        }
+        if (type == BukkitTask.class) {
+            return proxy(BukkitTask.class, TestServer::handleDefault);
+        }
+        return null;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(TestServer.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
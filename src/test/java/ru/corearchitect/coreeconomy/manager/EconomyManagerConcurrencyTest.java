@@ -0,0 +1,154 @@
+package ru.corearchitect.coreeconomy.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.corearchitect.coreeconomy.TestEconomyPlugin;
+import ru.corearchitect.coreeconomy.model.TransactionResult;
+import ru.corearchitect.coreeconomy.model.Transfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EconomyManagerConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+    private static final int ACCOUNTS = 32;
+    private static final BigDecimal STARTING_BALANCE = new BigDecimal("1000.00");
+
+    @TempDir
+    File dataFolder;
+
+    private TestEconomyPlugin plugin;
+    private EconomyManager economy;
+    private final List<UUID> accounts = new ArrayList<>();
+    private final AtomicLong deposited = new AtomicLong();
+    private final AtomicLong withdrawn = new AtomicLong();
+    private final AtomicLong transfers = new AtomicLong();
+
+    @BeforeEach
+    void start() throws IOException {
+        plugin = TestEconomyPlugin.start(dataFolder);
+        economy = plugin.getEconomyManager();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            UUID uuid = UUID.randomUUID();
+            plugin.getDataManager().createAccount(uuid);
+            economy.setBalance(uuid, STARTING_BALANCE).join();
+            accounts.add(uuid);
+        }
+    }
+
+    @AfterEach
+    void stop() {
+        plugin.stop();
+    }
+
+    @Test
+    void concurrentOperationsConserveSupplyAndCommission() throws InterruptedException {
+        long initialSupply = supply();
+
+        ExecutorService callers = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            callers.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    BigDecimal amount = BigDecimal.valueOf(random.nextLong(1, 50_000), 2);
+                    int operation = random.nextInt(10);
+                    if (operation < 5) {
+                        transfer(random, amount);
+                    } else if (operation < 7) {
+                        transferMany(random, amount);
+                    } else if (operation < 9) {
+                        withdraw(random, amount);
+                    } else {
+                        deposit(random, amount);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(2, TimeUnit.MINUTES), "operations did not finish in time");
+
+        long expected = initialSupply + deposited.get() - withdrawn.get();
+        assertEquals(expected, supply() + minor(economy.getTotalCommission().join()),
+                "money was created or destroyed: supply plus commission no longer matches deposits and withdrawals");
+        for (UUID uuid : accounts) {
+            assertTrue(economy.getBalance(uuid).join().signum() >= 0, "balance of " + uuid + " went negative");
+        }
+        assertTrue(transfers.get() > 0, "no transfer succeeded, the test exercised nothing");
+    }
+
+    private void transfer(ThreadLocalRandom random, BigDecimal amount) {
+        UUID from = randomAccount(random);
+        UUID to = randomAccount(random);
+        if (economy.transfer(from, to, amount).join() == TransactionResult.SUCCESS) {
+            transfers.incrementAndGet();
+        }
+    }
+
+    private void transferMany(ThreadLocalRandom random, BigDecimal amount) {
+        List<Transfer> batch = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UUID from = randomAccount(random);
+            UUID to = randomAccount(random);
+            if (!from.equals(to)) {
+                batch.add(new Transfer(from, to, amount));
+            }
+        }
+        List<TransactionResult> results = economy.transferMany(batch).join();
+        if (!results.isEmpty() && results.stream().allMatch(result -> result == TransactionResult.SUCCESS)) {
+            transfers.addAndGet(results.size());
+        }
+    }
+
+    private void withdraw(ThreadLocalRandom random, BigDecimal amount) {
+        if (economy.withdraw(randomAccount(random), amount).join()) {
+            withdrawn.addAndGet(minor(amount));
+        }
+    }
+
+    private void deposit(ThreadLocalRandom random, BigDecimal amount) {
+        if (economy.deposit(randomAccount(random), amount).join()) {
+            deposited.addAndGet(minor(amount));
+        }
+    }
+
+    private UUID randomAccount(ThreadLocalRandom random) {
+        return accounts.get(random.nextInt(accounts.size()));
+    }
+
+    private long supply() {
+        long total = 0;
+        for (UUID uuid : accounts) {
+            total += minor(economy.getBalance(uuid).join());
+        }
+        return total;
+    }
+
+    private static long minor(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+}